@@ -0,0 +1,76 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.ai.DocumentScanner;
+import com.ecomptaia.ai.DocumentScanner.Keyword;
+import com.ecomptaia.ai.DocumentScanner.Scan;
+import com.ecomptaia.ai.KeywordDictionaries;
+import com.ecomptaia.ai.KeywordDictionary;
+import com.ecomptaia.ai.SuggestionCache;
+import com.ecomptaia.store.DataRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyse de texte de l'IA, hors cache: détection complète (type, sens, tiers, date, montants) et extraction
+ * seule du montant TTC sur un texte déjà balayé, pour des factures et des relevés bancaires.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AiParsingBench {
+    private static final int VARIANTS = 16;
+
+    @Param({"FACTURE", "RELEVE"})
+    String document;
+
+    @Param({"CI"})
+    String country;
+
+    private File dir;
+    private DataRepository repo;
+    private AiController ai;
+    private String[] texts;
+    private Scan[] scans;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+        int next() { int k = i; i = (i + 1) % VARIANTS; return k; }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dir = BenchData.tempDir("ai");
+        repo = BenchData.repository(dir);
+        KeywordDictionaries dictionaries = new KeywordDictionaries(repo, new ClassPathResource("ai/keywords.json"));
+        ai = new AiController(dictionaries, null, null, repo, 1000);
+        KeywordDictionary dict = dictionaries.forCountry(country);
+        texts = new String[VARIANTS];
+        scans = new Scan[VARIANTS];
+        for (int i = 0; i < VARIANTS; i++) {
+            texts[i] = SuggestionCache.normalize("RELEVE".equals(document) ? BenchData.statement(i) : BenchData.invoice(i));
+            scans[i] = DocumentScanner.scan(texts[i], dict);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repo.close();
+        BenchData.delete(dir);
+    }
+
+    @Benchmark
+    public AiController.Detection detect(Cursor c) { return ai.detect(texts[c.next()], country); }
+
+    @Benchmark
+    public AiController.Extract extractAmount(Cursor c) {
+        return ai.extractAmount(scans[c.next()], Keyword.TOTAL_TTC, Keyword.TTC, Keyword.A_PAYER_ACCENT, Keyword.A_PAYER,
+                Keyword.NET_A_PAYER_ACCENT, Keyword.NET_A_PAYER);
+    }
+}
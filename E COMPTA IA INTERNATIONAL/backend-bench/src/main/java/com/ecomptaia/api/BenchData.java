@@ -0,0 +1,140 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+import com.ecomptaia.model.Tiers;
+import com.ecomptaia.store.DataRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Jeux de données des benchmarks: écritures dérivées du jeu de démonstration (demoSet), tiers, et textes de
+ * factures / relevés au format rencontré en zone OHADA. Déterministes: même graine, mêmes données.
+ */
+final class BenchData {
+    private BenchData() {}
+
+    /** Répertoire de données jetable. */
+    static File tempDir(String name) {
+        try { return Files.createTempDirectory("ecompta-bench-" + name).toFile(); }
+        catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    /** Dépôt sur dir, configuré comme application.yml (fsync désactivé). */
+    static DataRepository repository(File dir) {
+        return new DataRepository(dir.getPath(), 200, false, 10_000, 1_000, "512", "dossiers", 1024, 1_000, 1);
+    }
+
+    static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null) for (File c : children) delete(c);
+        f.delete();
+    }
+
+    /**
+     * n écritures: le jeu de démonstration répété, chaque tour décalé d'un jour, montants multipliés par 1 à 7,
+     * pièces suffixées et tiers répartis sur 500 fournisseurs / clients.
+     */
+    static List<Ecriture> entries(DataRepository repo, int n) {
+        EcrituresController c = new EcrituresController(repo, null, null);
+        List<Ecriture> out = new ArrayList<>(n);
+        for (int k = 0; out.size() < n; k++) {
+            int factor = 1 + k % 7;
+            for (Ecriture e : c.demoSet()) {
+                if (out.size() == n) break;
+                e.setDate(LocalDate.parse(e.getDate()).plusDays(k % 3650).toString());
+                e.setPiece(e.getPiece() + "-" + k);
+                for (Ligne l : e.getLignes()) {
+                    l.setDebit(l.getDebit() * factor); l.setCredit(l.getCredit() * factor);
+                    if (l.getCompte().startsWith("401")) l.setTiersId("FRS-" + (k % 500));
+                    else if (l.getCompte().startsWith("411")) l.setTiersId("CLT-" + (k % 500));
+                }
+                e.setTotalDebit(e.getTotalDebit() * factor); e.setTotalCredit(e.getTotalCredit() * factor);
+                out.add(e);
+            }
+        }
+        return out;
+    }
+
+    /** n tiers, clients et fournisseurs en alternance, codes CLT-0001 / FRS-0001 numérotés sans trou. */
+    static List<Tiers> tiers(int n) {
+        List<Tiers> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            boolean client = i % 2 == 0;
+            Tiers t = new Tiers();
+            t.setId("TIER-" + i);
+            t.setType(client ? "CLIENT" : "FOURNISSEUR");
+            t.setCode(String.format("%s-%04d", client ? "CLT" : "FRS", i / 2 + 1));
+            t.setName((client ? "Client " : "Fournisseur ") + i);
+            t.setDefaultAccount(client ? "411" : "401");
+            out.add(t);
+        }
+        return out;
+    }
+
+    private static final String[] PARTIES = {"SOCIETE IVOIRIENNE DE DISTRIBUTION SARL", "ETS KOUASSI & FILS", "DAKAR LOGISTIQUE SA",
+            "CAMEROUN BUREAUTIQUE", "BENIN AGRO INDUSTRIES", "SAHEL TELECOM SERVICES", "GABON MATERIAUX", "TOGO IMPRESSIONS"};
+
+    /** Facture d'achat: en-tête, lignes d'articles, totaux HT / TVA 18% / TTC. */
+    static String invoice(int i) {
+        long ht = 125_000L * (1 + i % 13) + 7_500L * (i % 5);
+        long tva = ht * 18 / 100;
+        StringBuilder sb = new StringBuilder();
+        sb.append(PARTIES[i % PARTIES.length]).append('\n')
+          .append("RCCM CI-ABJ-2019-B-").append(10_000 + i).append(" - CC 1903").append(100 + i % 900).append('\n')
+          .append("Abidjan Plateau, Avenue Chardy, 01 BP ").append(1000 + i).append('\n')
+          .append("FACTURE N° FA-2025-").append(String.format("%04d", i + 1)).append('\n')
+          .append("Date: ").append(String.format("%02d/%02d/2025", 1 + i % 28, 1 + i % 12)).append('\n')
+          .append("Client: E COMPTA IA INTERNATIONAL\n")
+          .append("Désignation                 Qté   P.U.        Montant\n");
+        for (int l = 0; l < 6; l++) {
+            long pu = (ht / 6) / (1 + l % 3);
+            sb.append("Article réf. ").append(400 + l).append(" fournitures de bureau   ").append(1 + l % 3).append("   ")
+              .append(fcfa(pu)).append("   ").append(fcfa(pu * (1 + l % 3))).append('\n');
+        }
+        sb.append("Total HT: ").append(fcfa(ht)).append(" FCFA\n")
+          .append("TVA 18%: ").append(fcfa(tva)).append(" FCFA\n")
+          .append("Total TTC: ").append(fcfa(ht + tva)).append(" FCFA\n")
+          .append("Net à payer: ").append(fcfa(ht + tva)).append(" FCFA\n")
+          .append("Règlement par virement à 30 jours - Banque Atlantique CI05 1234 5678 9012\n");
+        return sb.toString();
+    }
+
+    /** Relevé bancaire mensuel: une trentaine de mouvements, soldes de début et de fin. */
+    static String statement(int i) {
+        int month = 1 + i % 12;
+        StringBuilder sb = new StringBuilder();
+        sb.append("RELEVE DE COMPTE\n")
+          .append("Banque Atlantique Côte d'Ivoire - Agence Plateau\n")
+          .append("Compte courant n° CI05 1234 5678 9012 ").append(String.format("%04d", i)).append('\n')
+          .append(String.format("Période du 01/%02d/2025 au 28/%02d/2025%n", month, month))
+          .append("Solde initial: ").append(fcfa(2_500_000L + 10_000L * i)).append('\n')
+          .append("Date        Libellé                               Débit        Crédit\n");
+        for (int l = 0; l < 30; l++) {
+            long amount = 15_000L * (1 + (i + l) % 17);
+            boolean debit = (i + l) % 3 != 0;
+            sb.append(String.format("%02d/%02d/2025  ", 1 + l % 28, month))
+              .append(debit ? "PRLV " + PARTIES[l % PARTIES.length] : "VIR RECU CLIENT " + (l + 1)).append("   ")
+              .append(debit ? fcfa(amount) + "            " : "            " + fcfa(amount)).append('\n');
+        }
+        sb.append("Frais de tenue de compte   ").append(fcfa(5_000)).append('\n')
+          .append("Solde final: ").append(fcfa(2_300_000L + 7_000L * i)).append('\n');
+        return sb.toString();
+    }
+
+    // Montant en francs, milliers séparés par des espaces
+    private static String fcfa(long v) {
+        String s = Long.toString(v);
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < s.length(); k++) {
+            if (k > 0 && (s.length() - k) % 3 == 0) sb.append(' ');
+            sb.append(s.charAt(k));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.store.DataRepository;
+import com.ecomptaia.store.Dossier;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contrôles faits à chaque ajout: équilibre débit / crédit, et prepare (identifiant + totaux). nextId est mesuré
+ * seul sur plusieurs threads: compteur sans verrou, réservation par blocs dans sequences.json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EcritureBench {
+    private static final int SIZE = 10_000;
+
+    private File dir;
+    private DataRepository repo;
+    private Dossier dossier;
+    private Ecriture[] entries;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+        Ecriture next(Ecriture[] es) { Ecriture e = es[i]; i = i + 1 == es.length ? 0 : i + 1; return e; }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dir = BenchData.tempDir("ecriture");
+        repo = BenchData.repository(dir);
+        dossier = repo.current();
+        List<Ecriture> list = BenchData.entries(repo, SIZE);
+        entries = list.toArray(new Ecriture[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repo.close();
+        BenchData.delete(dir);
+    }
+
+    @Benchmark
+    public boolean isBalanced(Cursor c) { return EcrituresController.isBalanced(c.next(entries)); }
+
+    @Benchmark
+    public Ecriture prepare(Cursor c) { return EcrituresController.prepare(dossier, c.next(entries)); }
+
+    @Benchmark
+    @Threads(4)
+    public String nextId() { return dossier.sequences().nextId("ECR"); }
+}
@@ -0,0 +1,76 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.store.DataRepository;
+import com.ecomptaia.store.LedgerStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chargement et sauvegarde des écritures (EcrituresController lit et écrit par le LedgerStore):
+ * relecture du snapshot ecritures.json, et réécriture complète du snapshot (remplacement du jeu).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class LedgerStoreBench {
+    @Param({"10000", "100000", "1000000"})
+    int entries;
+
+    private final ObjectMapper om = new ObjectMapper();
+    private File dir;
+    private File loadDir;
+    private List<Ecriture> items;
+    private LedgerStore saveStore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = BenchData.tempDir("ledger");
+        DataRepository repo = BenchData.repository(new File(dir, "repo"));
+        items = BenchData.entries(repo, entries);
+        repo.close();
+        loadDir = new File(dir, "load");
+        loadDir.mkdirs();
+        LedgerStore s = new LedgerStore(loadDir, om, false, Integer.MAX_VALUE);
+        s.load();
+        s.commit(items, List.of(), true);
+        s.close();
+        File saveDir = new File(dir, "save");
+        saveDir.mkdirs();
+        saveStore = new LedgerStore(saveDir, om, false, Integer.MAX_VALUE);
+        saveStore.load();
+    }
+
+    // Segments WAL (vides) ouverts par chaque chargement
+    @TearDown(Level.Invocation)
+    public void dropSegments() {
+        File[] segs = new File(loadDir, "ecritures.wal").listFiles();
+        if (segs != null) for (File f : segs) f.delete();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        saveStore.close();
+        BenchData.delete(dir);
+    }
+
+    @Benchmark
+    public List<Ecriture> load() throws IOException {
+        LedgerStore s = new LedgerStore(loadDir, om, false, Integer.MAX_VALUE);
+        try { return s.load(); } finally { s.close(); }
+    }
+
+    @Benchmark
+    public List<Ecriture> save() throws IOException {
+        saveStore.commit(items, List.of(), true);
+        return items;
+    }
+}
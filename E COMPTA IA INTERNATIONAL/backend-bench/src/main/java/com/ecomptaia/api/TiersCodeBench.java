@@ -0,0 +1,45 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.store.DataRepository;
+import com.ecomptaia.store.Dossier;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Prochain code libre (CLT-, FRS-, AUT-) d'un nouveau tiers, sur un dossier de tiers déjà fourni. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TiersCodeBench {
+    @Param({"1000", "100000", "1000000"})
+    int tiers;
+
+    @Param({"CLIENT", "FOURNISSEUR", "AUTRE"})
+    String type;
+
+    private File dir;
+    private DataRepository repo;
+    private Dossier dossier;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = BenchData.tempDir("tiers");
+        repo = BenchData.repository(dir);
+        dossier = repo.current();
+        dossier.tiers().write(tx -> { tx.addAll(BenchData.tiers(tiers)); return null; });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repo.close();
+        BenchData.delete(dir);
+    }
+
+    @Benchmark
+    public String nextCode() { return TiersController.nextCode(dossier.tiersIndex(), type); }
+}
@@ -0,0 +1,72 @@
+package com.ecomptaia.ai;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Exécuteur borné des analyses de documents (lots de parseText): un thread par cœur par défaut et une
+ * file d'attente limitée; au-delà, la tâche est refusée (RejectedExecutionException) au lieu d'accumuler.
+ * Le délai par document court à partir du début de son exécution, pas de sa mise en file.
+ */
+@Component
+public class DocumentPool {
+    private final ThreadPoolExecutor pool;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(daemon("document-timeout"));
+    private final long timeoutMs;
+
+    public DocumentPool(@Value("${ecompta.ai.batch.threads:0}") int threads,
+                        @Value("${ecompta.ai.batch.queue-capacity:10000}") int queueCapacity,
+                        @Value("${ecompta.ai.batch.timeout-ms:5000}") long timeoutMs) {
+        int n = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = new ThreadPoolExecutor(n, n, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), daemon("document-worker"));
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Lance task; le futur échoue avec TimeoutException si l'analyse dépasse le délai une fois démarrée, et le
+     * thread de l'analyse est alors interrompu.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        try {
+            pool.execute(() -> {
+                if (f.isDone()) return;
+                // FutureTask n'interrompt que pendant son exécution: pas d'interruption égarée sur la tâche suivante
+                FutureTask<T> run = new FutureTask<>(task::get);
+                ScheduledFuture<?> t = timeoutMs > 0 ? timer.schedule(() -> {
+                    if (f.completeExceptionally(new TimeoutException("timeout"))) run.cancel(true);
+                }, timeoutMs, TimeUnit.MILLISECONDS) : null;
+                try {
+                    run.run();
+                    f.complete(run.get());
+                } catch (ExecutionException e) {
+                    f.completeExceptionally(e.getCause());
+                } catch (CancellationException | InterruptedException e) {
+                    // délai dépassé: futur déjà en échec
+                } finally {
+                    if (t != null) t.cancel(false);
+                    Thread.interrupted();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            f.completeExceptionally(e);
+        }
+        return f;
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> { Thread t = new Thread(r, name + "-" + n.incrementAndGet()); t.setDaemon(true); return t; };
+    }
+}
@@ -0,0 +1,192 @@
+package com.ecomptaia.ai;
+
+import java.util.*;
+
+/**
+ * Lecture d'un document texte (OCR) en une seule passe: positions des mots-clés (automate du
+ * KeywordDictionary), montants et première date, début des premières lignes. Les grammaires sont celles des anciennes expressions régulières de
+ * AiController.detect, appliquées à la main caractère par caractère:
+ * montant = [0-9]{1,3}([ .][0-9]{3})*(,[0-9]{1,2})?, date = dd[./-]mm[./-]yyyy ou yyyy-mm-dd entre limites de mot.
+ */
+public final class DocumentScanner {
+    /** Mots-clés structurels (repères des montants HT / TVA / TTC), présents dans tout dictionnaire. */
+    public enum Keyword {
+        TOTAL_HT("total ht"), MONTANT_HT("montant ht"), HT("ht"),
+        TVA("tva"), TAXE("taxe"), VAT("vat"),
+        TOTAL_TTC("total ttc"), TTC("ttc"), A_PAYER_ACCENT("à payer"), A_PAYER("a payer"), NET_A_PAYER_ACCENT("net à payer"), NET_A_PAYER("net a payer");
+
+        final String text;
+        Keyword(String text) { this.text = text; }
+
+        public String text() { return text; }
+    }
+
+    public static final int MAX_LINES = 10;
+
+    private DocumentScanner() {}
+
+    /** Minuscules caractère par caractère: même longueur que s, les positions restent valables dans le texte d'origine. */
+    public static String lower(String s) {
+        char[] lc = new char[s.length()];
+        for (int i = 0; i < lc.length; i++) lc[i] = Character.toLowerCase(s.charAt(i));
+        return new String(lc);
+    }
+
+    public static Scan scan(String text) { return scan(text, KeywordDictionary.BUILTIN); }
+
+    public static Scan scan(String text, KeywordDictionary dict) {
+        int n = text.length();
+        Scan s = new Scan(text, lower(text), dict);
+        int line = 0;
+        s.lineStarts[line++] = 0;
+        int numEnd = 0;      // fin du dernier montant: la recherche suivante reprend après, comme Matcher.find()
+        int state = 0;
+        for (int i = 0; i < n; i++) {
+            char c = s.lower.charAt(i);
+            state = dict.next(state, c);
+            for (int id : dict.matches(state)) if (s.first[id] < 0) { s.first[id] = i - dict.length(id) + 1; s.addHit(id); }
+            if (c == '\n') {
+                if (line < MAX_LINES) s.lineStarts[line++] = i + 1;
+                continue;
+            }
+            if (!isDigit(c)) continue;
+            if (s.dateStart < 0 && (i == 0 || !isWord(text.charAt(i - 1)))) {
+                int end = date(text, i);
+                if (end > 0) { s.dateStart = i; s.dateEnd = end; }
+            }
+            if (i >= numEnd) { numEnd = number(text, i, n); s.addNumber(i, numEnd, value(text, i, numEnd)); }
+        }
+        s.lineCount = line;
+        return s;
+    }
+
+    // Fin du montant commençant en start (start est un chiffre), sans dépasser limit
+    static int number(CharSequence t, int start, int limit) {
+        int i = start, d = 0;
+        while (i < limit && d < 3 && isDigit(t.charAt(i))) { i++; d++; }
+        while (i + 3 < limit && (t.charAt(i) == ' ' || t.charAt(i) == '.') && isDigit(t.charAt(i + 1)) && isDigit(t.charAt(i + 2)) && isDigit(t.charAt(i + 3))) i += 4;
+        if (i + 1 < limit && t.charAt(i) == ',' && isDigit(t.charAt(i + 1))) { i += 2; if (i < limit && isDigit(t.charAt(i))) i++; }
+        return i;
+    }
+
+    // Valeur en centimes d'un montant "1 234,5" (espaces et points = séparateurs de milliers); 0 si hors bornes
+    static long value(CharSequence t, int start, int end) {
+        long units = 0; int decimals = -1; long cents = 0;
+        try {
+            for (int i = start; i < end; i++) {
+                char c = t.charAt(i);
+                if (c == ',') decimals = 0;
+                else if (isDigit(c)) {
+                    if (decimals < 0) units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                    else { cents = cents * 10 + (c - '0'); decimals++; }
+                }
+            }
+            if (decimals == 1) cents *= 10;
+            return Math.addExact(Math.multiplyExact(units, 100), cents);
+        } catch (ArithmeticException e) { return 0; }
+    }
+
+    // Fin de la date commençant en start, ou -1
+    private static int date(String t, int start) {
+        int n = t.length();
+        // dd[./-]mm[./-]yyyy
+        if (start + 10 <= n && digits(t, start, 2) && isDateSep(t.charAt(start + 2)) && digits(t, start + 3, 2)
+                && isDateSep(t.charAt(start + 5)) && digits(t, start + 6, 4) && (start + 10 == n || !isWord(t.charAt(start + 10)))) return start + 10;
+        // yyyy-mm-dd
+        if (start + 10 <= n && digits(t, start, 4) && t.charAt(start + 4) == '-' && digits(t, start + 5, 2)
+                && t.charAt(start + 7) == '-' && digits(t, start + 8, 2) && (start + 10 == n || !isWord(t.charAt(start + 10)))) return start + 10;
+        return -1;
+    }
+
+    private static boolean digits(String t, int from, int count) {
+        for (int i = from; i < from + count; i++) if (!isDigit(t.charAt(i))) return false;
+        return true;
+    }
+
+    private static boolean isDigit(char c) { return c >= '0' && c <= '9'; }
+    private static boolean isDateSep(char c) { return c == '.' || c == '/' || c == '-'; }
+    private static boolean isWord(char c) { return Character.isLetterOrDigit(c) || c == '_'; }
+
+    /** Résultat d'une lecture: positions dans le texte d'origine (text et lower ont la même longueur). */
+    public static final class Scan {
+        public final String text;
+        public final String lower;
+        public final KeywordDictionary dictionary;
+        private final int[] first;
+        private final int[] lineStarts = new int[MAX_LINES];
+        private int lineCount;
+        private int dateStart = -1, dateEnd = -1;
+        private int[] numStart = new int[16], numEnd = new int[16];
+        private long[] numValue = new long[16];
+        private int numCount;
+        private int[] hits = new int[8];
+        private int hitCount;
+
+        Scan(String text, String lower, KeywordDictionary dictionary) {
+            this.text = text; this.lower = lower; this.dictionary = dictionary;
+            this.first = new int[dictionary.size()]; Arrays.fill(first, -1);
+        }
+
+        private void addNumber(int start, int end, long value) {
+            if (numCount == numStart.length) {
+                int cap = numCount * 2;
+                numStart = Arrays.copyOf(numStart, cap); numEnd = Arrays.copyOf(numEnd, cap); numValue = Arrays.copyOf(numValue, cap);
+            }
+            numStart[numCount] = start; numEnd[numCount] = end; numValue[numCount++] = value;
+        }
+
+        private void addHit(int id) {
+            if (hitCount == hits.length) hits = Arrays.copyOf(hits, hitCount * 2);
+            hits[hitCount++] = id;
+        }
+
+        /** Identifiants des termes présents, dans l'ordre de leur première occurrence. */
+        public int hitCount() { return hitCount; }
+        public int hit(int i) { return hits[i]; }
+
+        public boolean has(Keyword k) { return first[k.ordinal()] >= 0; }
+        public int position(Keyword k) { return first[k.ordinal()]; }
+
+        /** Première position du terme id du dictionnaire, -1 s'il est absent. */
+        public int position(int id) { return first[id]; }
+
+        public String date() { return dateStart < 0 ? null : text.substring(dateStart, dateEnd); }
+
+        /** Nombre de lignes connues (au plus MAX_LINES, découpage sur \n). */
+        public int lineCount() { return lineCount; }
+
+        /** Longueur de la ligne l après trim(), sans la copier. */
+        public int lineLength(int l) { int[] r = trimmed(l); return r[1] - r[0]; }
+
+        public String line(int l) { int[] r = trimmed(l); return text.substring(r[0], r[1]); }
+
+        /** Vrai si la ligne l contient word (en minuscules). */
+        public boolean lineContains(int l, String word) {
+            int[] r = trimmed(l);
+            for (int i = r[0]; i + word.length() <= r[1]; i++) if (lower.startsWith(word, i)) return true;
+            return false;
+        }
+
+        private int[] trimmed(int l) {
+            int start = lineStarts[l];
+            int end = text.indexOf('\n', start);
+            if (end < 0) end = text.length();
+            while (start < end && text.charAt(start) <= ' ') start++;
+            while (end > start && text.charAt(end - 1) <= ' ') end--;
+            return new int[] { start, end };
+        }
+
+        public int numberCount() { return numCount; }
+        public long maxAmount() { long m = 0; for (int i = 0; i < numCount; i++) m = Math.max(m, numValue[i]); return m; }
+
+        /** Premier montant commençant dans [from, from + window), tronqué à la fenêtre; -1 si aucun. */
+        public long amountAfter(int from, int window) {
+            int lo = 0, hi = numCount;
+            while (lo < hi) { int mid = (lo + hi) >>> 1; if (numStart[mid] < from) lo = mid + 1; else hi = mid; }
+            int limit = Math.min(text.length(), from + window);
+            if (lo == numCount || numStart[lo] >= limit) return -1;
+            if (numEnd[lo] <= limit) return numValue[lo];
+            return value(text, numStart[lo], number(text, numStart[lo], limit));
+        }
+    }
+}
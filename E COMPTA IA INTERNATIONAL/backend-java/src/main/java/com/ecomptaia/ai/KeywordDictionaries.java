@@ -0,0 +1,64 @@
+package com.ecomptaia.ai;
+
+import com.ecomptaia.store.DataRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionnaires de mots-clés par pays, lus depuis ecompta.ai.keywords (classpath:ai/keywords.json par défaut):
+ * "default" donne les termes par langue, "countries" les langues de chaque pays et ses termes propres.
+ * Un pays reçoit les termes par défaut de ses langues plus les siens; un pays inconnu (ou absent) reçoit
+ * les termes par défaut de toutes les langues. Chaque dictionnaire est compilé une fois, au premier usage.
+ */
+@Component
+public class KeywordDictionaries {
+    private static final String ANY = "*";
+
+    private final JsonNode config;
+    private final Map<String, KeywordDictionary> compiled = new ConcurrentHashMap<>();
+
+    public KeywordDictionaries(DataRepository repo, @Value("${ecompta.ai.keywords:classpath:ai/keywords.json}") Resource file) {
+        try (InputStream in = file.getInputStream()) { this.config = repo.mapper().readTree(in); }
+        catch (IOException e) { throw new UncheckedIOException("cannot read keyword dictionary " + file, e); }
+    }
+
+    /** Dictionnaire du pays (code ISO, insensible à la casse; null = tous pays). */
+    public KeywordDictionary forCountry(String country) {
+        String key = country == null || country.isBlank() || !config.path("countries").has(country.trim().toUpperCase(Locale.ROOT)) ? ANY : country.trim().toUpperCase(Locale.ROOT);
+        return compiled.computeIfAbsent(key, this::compile);
+    }
+
+    // Un terme partagé par plusieurs langues (ticket, recibo, cliente) n'est retenu qu'une fois par catégorie,
+    // sinon chaque occurrence compterait double
+    private KeywordDictionary compile(String country) {
+        Map<String, KeywordDictionary.Term> terms = new LinkedHashMap<>();
+        JsonNode defaults = config.path("default");
+        if (ANY.equals(country)) {
+            defaults.fields().forEachRemaining(f -> add(terms, f.getValue()));
+        } else {
+            JsonNode c = config.path("countries").path(country);
+            for (JsonNode lang : c.path("langs")) {
+                add(terms, defaults.path(lang.asText()));
+                add(terms, c.path(lang.asText()));
+            }
+        }
+        return KeywordDictionary.compile(new ArrayList<>(terms.values()));
+    }
+
+    private static void add(Map<String, KeywordDictionary.Term> terms, JsonNode entries) {
+        for (JsonNode e : entries) {
+            String text = e.path("term").asText("");
+            if (text.isBlank()) continue;
+            String category = e.path("category").asText();
+            terms.putIfAbsent(DocumentScanner.lower(text) + '\0' + category, new KeywordDictionary.Term(text, category, e.path("weight").asDouble(1)));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.ecomptaia.ai;
+
+import java.util.*;
+
+/**
+ * Dictionnaire de mots-clés compilé en automate d'Aho-Corasick déterminisé: une transition par caractère
+ * (table [état × classe de caractère]), sans retour arrière ni allocation pendant la lecture. Tous les termes
+ * sont donc reconnus en une passe, quel que soit leur nombre.
+ * Les mots-clés structurels (DocumentScanner.Keyword) occupent les identifiants 0..k-1; les termes du
+ * dictionnaire suivent, chacun avec sa catégorie et son poids.
+ */
+public final class KeywordDictionary {
+    private static final int BUILTIN_COUNT = DocumentScanner.Keyword.values().length;
+
+    public static final KeywordDictionary BUILTIN = compile(List.of());
+
+    private final List<Term> terms;
+    private final int[] length;          // longueur de chaque terme (builtins compris)
+    private final char[] classOf;        // caractère → classe (0 = absent de tous les termes)
+    private final int classes;
+    private final int[] delta;           // delta[état * classes + classe] = état suivant
+    private final int[][] out;           // termes reconnus en arrivant dans l'état
+
+    private KeywordDictionary(List<Term> terms, int[] length, char[] classOf, int classes, int[] delta, int[][] out) {
+        this.terms = terms; this.length = length; this.classOf = classOf; this.classes = classes; this.delta = delta; this.out = out;
+    }
+
+    /** Compile les termes (en minuscules) avec les mots-clés structurels. */
+    public static KeywordDictionary compile(List<Term> terms) {
+        List<String> words = new ArrayList<>(BUILTIN_COUNT + terms.size());
+        for (DocumentScanner.Keyword k : DocumentScanner.Keyword.values()) words.add(k.text());
+        for (Term t : terms) words.add(t.text);
+
+        // Classes de caractères
+        char[] classOf = new char[Character.MAX_VALUE + 1];
+        int classes = 1;
+        for (String w : words) for (int i = 0; i < w.length(); i++) if (classOf[w.charAt(i)] == 0) classOf[w.charAt(i)] = (char) classes++;
+
+        // Trie
+        List<int[]> go = new ArrayList<>();
+        List<List<Integer>> outs = new ArrayList<>();
+        go.add(new int[classes]); outs.add(new ArrayList<>());
+        int[] length = new int[words.size()];
+        for (int id = 0; id < words.size(); id++) {
+            String w = words.get(id);
+            length[id] = w.length();
+            if (w.isEmpty()) continue;
+            int s = 0;
+            for (int i = 0; i < w.length(); i++) {
+                int c = classOf[w.charAt(i)];
+                if (go.get(s)[c] == 0) { go.get(s)[c] = go.size(); go.add(new int[classes]); outs.add(new ArrayList<>()); }
+                s = go.get(s)[c];
+            }
+            outs.get(s).add(id);
+        }
+
+        // Liens d'échec en largeur, transitions manquantes complétées (automate déterministe)
+        int n = go.size();
+        int[] fail = new int[n];
+        int[] delta = new int[n * classes];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 1; c < classes; c++) {
+            int t = go.get(0)[c];
+            delta[c] = t;
+            if (t != 0) queue.add(t);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            outs.get(s).addAll(outs.get(fail[s]));
+            for (int c = 1; c < classes; c++) {
+                int t = go.get(s)[c];
+                if (t != 0) { fail[t] = delta[fail[s] * classes + c]; delta[s * classes + c] = t; queue.add(t); }
+                else delta[s * classes + c] = delta[fail[s] * classes + c];
+            }
+        }
+        int[][] out = new int[n][];
+        for (int s = 0; s < n; s++) out[s] = outs.get(s).stream().mapToInt(Integer::intValue).toArray();
+        return new KeywordDictionary(List.copyOf(terms), length, classOf, classes, delta, out);
+    }
+
+    /** État suivant après le caractère c (déjà en minuscules). */
+    public int next(int state, char c) { return delta[state * classes + classOf[c]]; }
+
+    /** Identifiants des termes se terminant sur cet état. */
+    public int[] matches(int state) { return out[state]; }
+
+    public int size() { return length.length; }
+    public int length(int id) { return length[id]; }
+
+    /** Terme du dictionnaire pour un identifiant; null pour un mot-clé structurel. */
+    public Term term(int id) { return id < BUILTIN_COUNT ? null : terms.get(id - BUILTIN_COUNT); }
+
+    public List<Term> terms() { return terms; }
+
+    public static final class Term {
+        private final String text;
+        private final String category;
+        private final double weight;
+
+        public Term(String text, String category, double weight) { this.text = DocumentScanner.lower(text); this.category = category; this.weight = weight; }
+
+        // Getters
+        public String getText() { return text; }
+        public String getCategory() { return category; }
+        public double getWeight() { return weight; }
+    }
+}
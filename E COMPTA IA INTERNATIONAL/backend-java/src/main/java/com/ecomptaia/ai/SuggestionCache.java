@@ -0,0 +1,113 @@
+package com.ecomptaia.ai;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache LRU des analyses de documents, adressé par contenu: la clé est le SHA-256 du texte normalisé
+ * (fins de ligne unifiées, blancs de fin de ligne retirés) et des paramètres pays / devise / type.
+ * Borné en nombre d'entrées, avec durée de vie; compteurs de succès / échecs / évictions.
+ * Deux analyses concurrentes d'un même document peuvent être calculées deux fois: le cache n'est pas un verrou.
+ */
+@Component
+public class SuggestionCache {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> map;
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), evictions = new AtomicLong(), expirations = new AtomicLong();
+
+    public SuggestionCache(@Value("${ecompta.ai.cache.max-entries:10000}") int maxEntries,
+                           @Value("${ecompta.ai.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSeconds));
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= SuggestionCache.this.maxEntries) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /** Texte tel qu'il est analysé et haché: \r\n et \r deviennent \n, espaces et tabulations de fin de ligne retirés. */
+    public static String normalize(String text) {
+        if (text == null) return "";
+        StringBuilder sb = new StringBuilder(text.length());
+        int lineEnd = 0;   // longueur de sb sans les blancs de fin de la ligne courante
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\r' || c == '\n') {
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') i++;
+                sb.setLength(lineEnd); sb.append('\n'); lineEnd = sb.length();
+            } else {
+                sb.append(c);
+                if (c != ' ' && c != '\t') lineEnd = sb.length();
+            }
+        }
+        sb.setLength(lineEnd);
+        return sb.toString();
+    }
+
+    public static String key(String normalizedText, String country, String currency, String typeHint) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(normalizedText.getBytes(StandardCharsets.UTF_8));
+            for (String p : new String[] { upper(country), upper(currency), typeHint == null ? "" : typeHint.trim() }) {
+                md.update((byte) 0);
+                md.update(p.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) { throw new IllegalStateException(e); }
+    }
+
+    /** Valeur en cache pour key, sinon calculée par compute puis mémorisée. */
+    public <T> T get(String key, Supplier<T> compute) {
+        if (maxEntries == 0) { misses.incrementAndGet(); return compute.get(); }
+        long now = System.nanoTime();
+        synchronized (map) {
+            Entry e = map.get(key);
+            if (e != null) {
+                if (now - e.created < ttlNanos) {
+                    hits.incrementAndGet();
+                    @SuppressWarnings("unchecked") T v = (T) e.value;
+                    return v;
+                }
+                map.remove(key); expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        T v = compute.get();
+        synchronized (map) { map.put(key, new Entry(v, System.nanoTime())); }
+        return v;
+    }
+
+    public void clear() { synchronized (map) { map.clear(); } }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (map) { size = map.size(); }
+        long h = hits.get(), m = misses.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("size", size); out.put("maxEntries", maxEntries); out.put("ttlSeconds", TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+        out.put("hits", h); out.put("misses", m); out.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        out.put("evictions", evictions.get()); out.put("expirations", expirations.get());
+        return out;
+    }
+
+    private static String upper(String s) { return s == null ? "" : s.trim().toUpperCase(Locale.ROOT); }
+
+    private static final class Entry {
+        final Object value;
+        final long created;
+        Entry(Object value, long created) { this.value = value; this.created = created; }
+    }
+}
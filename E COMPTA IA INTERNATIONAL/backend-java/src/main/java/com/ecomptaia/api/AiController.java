@@ -1,75 +1,186 @@
 package com.ecomptaia.api;
 
+import com.ecomptaia.ai.DocumentPool;
+import com.ecomptaia.ai.DocumentScanner;
+import com.ecomptaia.ai.DocumentScanner.Keyword;
+import com.ecomptaia.ai.DocumentScanner.Scan;
+import com.ecomptaia.ai.KeywordDictionaries;
+import com.ecomptaia.ai.KeywordDictionary;
+import com.ecomptaia.ai.SuggestionCache;
+import com.ecomptaia.ledger.CounterpartyIndex;
+import com.ecomptaia.model.Money;
+import com.ecomptaia.store.DataRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.*;
 
 @RestController
 @RequestMapping("/api/ai")
 public class AiController {
+    // Types reconnus, par ordre de priorité à score égal
+    private static final List<String> TYPES = List.of("RELEVE", "RECU", "FACTURE");
+
+    private final KeywordDictionaries dictionaries;
+    private final DocumentPool pool;
+    private final SuggestionCache cache;
+    private final DataRepository repo;
+    private final int maxDocuments;
+    private final ObjectWriter ndjson;
+
+    public AiController(KeywordDictionaries dictionaries, DocumentPool pool, SuggestionCache cache, DataRepository repo,
+                        @Value("${ecompta.ai.batch.max-documents:1000}") int maxDocuments) {
+        this.dictionaries = dictionaries; this.pool = pool; this.cache = cache; this.maxDocuments = maxDocuments;
+        this.repo = repo;
+        this.ndjson = repo.mapper().writerFor(BatchResult.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
 
     @PostMapping("/parseText")
     public ResponseEntity<SuggestionResponse> parseText(@RequestBody ParseRequest req) {
-        String text = Optional.ofNullable(req.getText()).orElse("");
-        Detection det = detect(text);
+        return ResponseEntity.ok(analyze(req, repo.current().counterparties()));
+    }
+
+    // Lot de documents analysés en parallèle; résultats dans l'ordre de la demande
+    @PostMapping("/parseText/batch")
+    public CompletableFuture<ResponseEntity<?>> parseBatch(@RequestBody BatchRequest req) {
+        if (req.getDocuments()==null || req.getDocuments().size()>maxDocuments) return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error","documents required (max "+maxDocuments+")")));
+        List<CompletableFuture<BatchResult>> fs = submitAll(req.getDocuments());
+        return CompletableFuture.allOf(fs.toArray(new CompletableFuture<?>[0])).thenApply(x -> {
+            List<BatchResult> out = new ArrayList<>(fs.size());
+            for (CompletableFuture<BatchResult> f : fs) out.add(f.join());
+            return ResponseEntity.ok(Map.of("results", out));
+        });
+    }
+
+    // Variante NDJSON: une ligne par document, dans l'ordre où les analyses se terminent
+    @PostMapping(value = "/parseText/batch", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamBatch(@RequestBody BatchRequest req) {
+        if (req.getDocuments()==null || req.getDocuments().size()>maxDocuments) {
+            String err = "{\"error\":\"documents required (max "+maxDocuments+")\"}\n";
+            return ResponseEntity.badRequest().contentType(MediaType.parseMediaType("application/x-ndjson")).body(out -> out.write(err.getBytes(StandardCharsets.UTF_8)));
+        }
+        BlockingQueue<BatchResult> done = new LinkedBlockingQueue<>();
+        List<CompletableFuture<BatchResult>> fs = submitAll(req.getDocuments());
+        fs.forEach(f -> f.thenAccept(done::add));
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator g = ndjson.createGenerator(out)) {
+                g.setRootValueSeparator(null);
+                for (int i = 0; i < fs.size(); i++) {
+                    ndjson.writeValue(g, done.take()); g.writeRaw('\n'); g.flush();
+                }
+            } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    // Historique du dossier de la requête, lu depuis les threads du pool
+    private List<CompletableFuture<BatchResult>> submitAll(List<ParseRequest> docs) {
+        CounterpartyIndex counterparties = repo.current().counterparties();
+        List<CompletableFuture<BatchResult>> fs = new ArrayList<>(docs.size());
+        for (int i = 0; i < docs.size(); i++) {
+            int index = i; ParseRequest doc = docs.get(i);
+            fs.add(pool.submit(() -> analyze(doc, counterparties)).handle((r, ex) -> new BatchResult(index, r, ex == null ? null : error(ex))));
+        }
+        return fs;
+    }
+
+    private static String error(Throwable ex) {
+        Throwable c = ex instanceof CompletionException && ex.getCause()!=null ? ex.getCause() : ex;
+        if (c instanceof TimeoutException) return "timeout";
+        if (c instanceof RejectedExecutionException) return "busy";
+        return c.getMessage()!=null ? c.getMessage() : c.getClass().getSimpleName();
+    }
+
+    @GetMapping("/cache")
+    public Map<String,Object> cacheStats() { return cache.stats(); }
+
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> clearCache() { cache.clear(); return ResponseEntity.noContent().build(); }
+
+    // Historique appris d'un tiers (par identifiant ou par nom)
+    @GetMapping("/counterparties")
+    public ResponseEntity<?> counterparty(@RequestParam(required=false) String tiersId, @RequestParam(required=false) String name) {
+        CounterpartyIndex counterparties = repo.current().counterparties();
+        CounterpartyIndex.Learned l = tiersId!=null ? counterparties.byId(tiersId) : counterparties.byName(name);
+        return l==null ? ResponseEntity.notFound().build() : ResponseEntity.ok(l);
+    }
+
+    // Détection mise en cache par contenu (texte normalisé + pays + devise + type); les propositions
+    // sont recalculées à chaque appel pour suivre ce qui a été appris des écritures depuis
+    private SuggestionResponse analyze(ParseRequest req, CounterpartyIndex counterparties) {
+        String text = SuggestionCache.normalize(req.getText());
+        Detection det = cache.get(SuggestionCache.key(text, req.getCountry(), req.getCurrency(), req.getTypeHint()), () -> detect(text, req.getCountry()));
         SuggestionResponse resp = new SuggestionResponse();
         resp.setDetected(det);
-        resp.setSuggestions(buildSuggestions(det));
-        return ResponseEntity.ok(resp);
+        resp.setSuggestions(buildSuggestions(det, counterparties));
+        return resp;
     }
 
-    private List<Suggestion> buildSuggestions(Detection det) {
+    private List<Suggestion> buildSuggestions(Detection det, CounterpartyIndex counterparties) {
         List<Suggestion> out = new ArrayList<>();
         // Heuristique: si doc est facture et sens non déterminé, générer 2 variantes (achat et vente)
         if (det.getType().equals("FACTURE")) {
-            out.add(makePurchase(det));
-            out.add(makeSale(det));
+            out.add(makePurchase(det, counterparties));
+            out.add(makeSale(det, counterparties));
         } else if (det.getType().equals("RECU")) {
-            out.add(makePurchase(det));
+            out.add(makePurchase(det, counterparties));
         } else if (det.getType().equals("RELEVE")) {
             // Proposition simple de mouvement bancaire
             out.add(makeBank(det));
         } else {
-            out.add(makePurchase(det));
+            out.add(makePurchase(det, counterparties));
         }
         // Trier par confiance décroissante
         out.sort((a,b) -> Double.compare(b.getConfidence(), a.getConfidence()));
         return out;
     }
 
-    private Suggestion makePurchase(Detection d) {
-        double ht = d.getHt()>0? d.getHt() : (d.getTtc()>0 && d.getTva()>0? round2(d.getTtc() - d.getTva()) : 0);
-        double tva = d.getTva()>0? d.getTva() : (d.getTtc()>0 && ht>0? round2(d.getTtc() - ht) : 0);
-        double ttc = d.getTtc()>0? d.getTtc() : round2(ht + tva);
+    private Suggestion makePurchase(Detection d, CounterpartyIndex counterparties) {
+        long ht = d.getHt()>0? d.getHt() : (d.getTtc()>0 && d.getTva()>0? d.getTtc() - d.getTva() : 0);
+        long tva = d.getTva()>0? d.getTva() : (d.getTtc()>0 && ht>0? d.getTtc() - ht : 0);
+        long ttc = d.getTtc()>0? d.getTtc() : ht + tva;
+        // Comptes habituels du fournisseur s'il est connu
+        CounterpartyIndex.Learned h = counterparties.byName(d.getParty());
+        String charge = learned(h, "607", "6", "2"), tiers = learned(h, "401", "40");
         Suggestion s = baseSuggestion(d);
-        s.setJournalCode("ACH");
+        String journal = h==null? null : h.topJournal("6", "2");
+        s.setJournalCode(journal!=null? journal : "ACH");
         s.setLines(List.of(
-                line("607","Achats", ht, 0),
+                line(charge,"Achats", ht, 0),
                 line("44566","TVA déductible", tva, 0),
-                line("401", d.getParty()!=null? d.getParty() : "Fournisseur", 0, ttc)
+                line(tiers, d.getParty()!=null? d.getParty() : "Fournisseur", 0, ttc)
         ));
-        s.setConfidence(score(d, "PURCHASE"));
+        s.setConfidence(Math.min(0.99, score(d, "PURCHASE") + (h!=null && h.topCompte("6", "2")!=null? 0.1 : 0)));
         return s;
     }
-    private Suggestion makeSale(Detection d) {
-        double ht = d.getHt()>0? d.getHt() : (d.getTtc()>0 && d.getTva()>0? round2(d.getTtc() - d.getTva()) : 0);
-        double tva = d.getTva()>0? d.getTva() : (d.getTtc()>0 && ht>0? round2(d.getTtc() - ht) : 0);
-        double ttc = d.getTtc()>0? d.getTtc() : round2(ht + tva);
+    private Suggestion makeSale(Detection d, CounterpartyIndex counterparties) {
+        long ht = d.getHt()>0? d.getHt() : (d.getTtc()>0 && d.getTva()>0? d.getTtc() - d.getTva() : 0);
+        long tva = d.getTva()>0? d.getTva() : (d.getTtc()>0 && ht>0? d.getTtc() - ht : 0);
+        long ttc = d.getTtc()>0? d.getTtc() : ht + tva;
+        // Comptes habituels du client s'il est connu
+        CounterpartyIndex.Learned h = counterparties.byName(d.getParty());
+        String produit = learned(h, "707", "7"), tiers = learned(h, "411", "41");
         Suggestion s = baseSuggestion(d);
-        s.setJournalCode("VEN");
+        String journal = h==null? null : h.topJournal("7");
+        s.setJournalCode(journal!=null? journal : "VEN");
         s.setLines(List.of(
-                line("411", d.getParty()!=null? d.getParty() : "Client", 0, ttc),
-                line("707","Ventes", ht, 0),
+                line(tiers, d.getParty()!=null? d.getParty() : "Client", 0, ttc),
+                line(produit,"Ventes", ht, 0),
                 line("44571","TVA collectée", tva, 0)
         ));
-        s.setConfidence(score(d, "SALE"));
+        s.setConfidence(Math.min(0.99, score(d, "SALE") + (h!=null && h.topCompte("7")!=null? 0.1 : 0)));
         return s;
     }
     private Suggestion makeBank(Detection d) {
-        double amt = d.getTtc()>0? d.getTtc() : (d.getHt()>0? d.getHt() : d.getTva());
+        long amt = d.getTtc()>0? d.getTtc() : (d.getHt()>0? d.getHt() : d.getTva());
         Suggestion s = baseSuggestion(d);
         s.setJournalCode("BNK");
         s.setLines(List.of(
@@ -80,6 +191,11 @@ public class AiController {
         return s;
     }
 
+    private static String learned(CounterpartyIndex.Learned h, String fallback, String... prefixes) {
+        String c = h==null? null : h.topCompte(prefixes);
+        return c!=null? c : fallback;
+    }
+
     private Suggestion baseSuggestion(Detection d) {
         Suggestion s = new Suggestion();
         s.setPiece(d.getPiece()!=null? d.getPiece() : UUID.randomUUID().toString());
@@ -87,7 +203,7 @@ public class AiController {
         return s;
     }
 
-    private SuggestionLine line(String compte, String libelle, double debit, double credit) {
+    private SuggestionLine line(String compte, String libelle, long debit, long credit) {
         SuggestionLine l = new SuggestionLine();
         l.setCompte(compte); l.setLibelle(libelle); l.setDebit(debit); l.setCredit(credit);
         return l;
@@ -96,84 +212,72 @@ public class AiController {
     private double score(Detection d, String side) {
         double s = 0.5;
         if (d.hasHT) s += 0.1; if (d.hasTVA) s += 0.2; if (d.hasTTC) s += 0.1;
-        if (side.equals("SALE") && d.getSaleHints()>0) s += 0.1 * d.getSaleHints();
-        if (side.equals("PURCHASE") && d.getPurchaseHints()>0) s += 0.1 * d.getPurchaseHints();
+        if (side.equals("SALE") && d.getSaleScore()>0) s += 0.1 * d.getSaleScore();
+        if (side.equals("PURCHASE") && d.getPurchaseScore()>0) s += 0.1 * d.getPurchaseScore();
         return Math.min(0.99, s);
     }
 
-    private Detection detect(String text) {
+    Detection detect(String text, String country) {
         Detection d = new Detection();
-        String lower = text.toLowerCase(Locale.ROOT);
-        if (lower.contains("relevé")) d.setType("RELEVE");
-        else if (lower.contains("reçu") || lower.contains("receipt") || lower.contains("ticket")) d.setType("RECU");
-        else if (lower.contains("facture") || lower.contains("invoice")) d.setType("FACTURE");
-        else d.setType("INCONNU");
+        KeywordDictionary dict = dictionaries.forCountry(country);
+        Scan sc = DocumentScanner.scan(text, dict);
+
+        // Mots-clés du dictionnaire. Type de document: le poids d'un terme est un rang, le type retenu est celui du
+        // terme trouvé le plus fort (un seul "relevé" l'emporte sur plusieurs "facture"). Sens: poids cumulés.
+        double[] typeScore = new double[TYPES.size()];
+        for (int h = 0; h < sc.hitCount(); h++) {
+            KeywordDictionary.Term t = dict.term(sc.hit(h));
+            if (t == null) continue;
+            String cat = t.getCategory();
+            if (cat.startsWith("type:")) { int i = TYPES.indexOf(cat.substring(5)); if (i >= 0) typeScore[i] = Math.max(typeScore[i], t.getWeight()); }
+            else if (cat.equals("purchase")) { d.setPurchaseHints(d.getPurchaseHints()+1); d.setPurchaseScore(d.getPurchaseScore()+t.getWeight()); }
+            else if (cat.equals("sale")) { d.setSaleHints(d.getSaleHints()+1); d.setSaleScore(d.getSaleScore()+t.getWeight()); }
+        }
+        int best = -1;
+        for (int i = 0; i < typeScore.length; i++) if (typeScore[i] > 0 && (best < 0 || typeScore[i] > typeScore[best])) best = i;
+        d.setType(best < 0 ? "INCONNU" : TYPES.get(best));
 
         // Party (nom simple: première ligne non vide en tête)
-        String[] lines = text.split("\r?\n");
-        for (int i=0;i<Math.min(lines.length, 10);i++) {
-            String ln = lines[i].trim();
-            if (ln.length()>=3 && !ln.toLowerCase().contains("facture") && !ln.toLowerCase().contains("invoice")) { d.setParty(ln); break; }
+        for (int i=0;i<sc.lineCount();i++) {
+            if (sc.lineLength(i)>=3 && !sc.lineContains(i, "facture") && !sc.lineContains(i, "invoice")) { d.setParty(sc.line(i)); break; }
         }
 
         // Date dd/mm/yyyy ou yyyy-mm-dd
-        Pattern pDate = Pattern.compile("(\\b\\d{2}[\\./-]\\d{2}[\\./-]\\d{4}\\b)|(\\b\\d{4}-\\d{2}-\\d{2}\\b)");
-        Matcher mDate = pDate.matcher(text);
-        if (mDate.find()) d.setDate(mDate.group());
+        d.setDate(sc.date());
 
         // Montants
-        Extract eHT = extractAmount(text, new String[]{"total ht","montant ht","ht"});
-        Extract eTVA = extractAmount(text, new String[]{"tva","taxe","vat"});
-        Extract eTTC = extractAmount(text, new String[]{"total ttc","ttc","à payer","a payer","net à payer","net a payer"});
+        Extract eHT = extractAmount(sc, Keyword.TOTAL_HT, Keyword.MONTANT_HT, Keyword.HT);
+        Extract eTVA = extractAmount(sc, Keyword.TVA, Keyword.TAXE, Keyword.VAT);
+        Extract eTTC = extractAmount(sc, Keyword.TOTAL_TTC, Keyword.TTC, Keyword.A_PAYER_ACCENT, Keyword.A_PAYER, Keyword.NET_A_PAYER_ACCENT, Keyword.NET_A_PAYER);
         if (eHT.found) { d.setHt(eHT.value); d.hasHT = true; d.setPiece(eHT.contextId); }
         if (eTVA.found) { d.setTva(eTVA.value); d.hasTVA = true; if (d.getPiece()==null) d.setPiece(eTVA.contextId); }
         if (eTTC.found) { d.setTtc(eTTC.value); d.hasTTC = true; if (d.getPiece()==null) d.setPiece(eTTC.contextId); }
 
-        // Indices achat/vente
-        if (lower.contains("tva déductible") || lower.contains("tva deductibile") || lower.contains("fournisseur")) d.setPurchaseHints(d.getPurchaseHints()+1);
-        if (lower.contains("tva collectée") || lower.contains("tva collectee") || lower.contains("client")) d.setSaleHints(d.getSaleHints()+1);
-
         return d;
     }
 
-    private Extract extractAmount(String text, String[] keywords) {
-        String lower = text.toLowerCase(Locale.ROOT);
-        for (String kw : keywords) {
-            int idx = lower.indexOf(kw);
+    Extract extractAmount(Scan sc, Keyword... keywords) {
+        for (Keyword kw : keywords) {
+            int idx = sc.position(kw);
             if (idx >= 0) {
                 // Chercher un nombre près du mot-clé
-                String around = text.substring(Math.max(0, idx), Math.min(text.length(), idx + 120));
-                Pattern pNum = Pattern.compile("([0-9]{1,3}(?:[ .][0-9]{3})*(?:,[0-9]{1,2})?)|([0-9]+(?:\\.[0-9]{1,2})?)");
-                Matcher m = pNum.matcher(around);
-                if (m.find()) {
-                    String raw = m.group();
-                    double val = parseAmount(raw);
-                    Extract ex = new Extract(); ex.found = true; ex.value = val; ex.contextId = kw.toUpperCase(Locale.ROOT);
+                long val = sc.amountAfter(idx, 120);
+                if (val >= 0) {
+                    Extract ex = new Extract(); ex.found = true; ex.value = val; ex.contextId = kw.text().toUpperCase(Locale.ROOT);
                     return ex;
                 }
             }
         }
         // fallback: plus grand nombre trouvé
-        Pattern pNum = Pattern.compile("([0-9]{1,3}(?:[ .][0-9]{3})*(?:,[0-9]{1,2})?)|([0-9]+(?:\\.[0-9]{1,2})?)");
-        Matcher m = pNum.matcher(text);
-        double max = 0; boolean any = false;
-        while (m.find()) { any = true; max = Math.max(max, parseAmount(m.group())); }
-        Extract ex = new Extract(); ex.found = any; ex.value = max; ex.contextId = "AUTO";
+        Extract ex = new Extract(); ex.found = sc.numberCount()>0; ex.value = sc.maxAmount(); ex.contextId = "AUTO";
         return ex;
     }
 
-    private double parseAmount(String s) {
-        String t = s.replace(" ", "").replace(".", "");
-        t = t.replace(",", ".");
-        try { return round2(Double.parseDouble(t)); } catch (Exception e) { return 0; }
-    }
-
     private String today() { return java.time.LocalDate.now().toString(); }
-    private double round2(double v) { return Math.round(v*100.0)/100.0; }
 
     public static class Extract {
         public boolean found;
-        public double value;
+        public long value; // centimes
         public String contextId;
     }
 
@@ -196,6 +300,29 @@ public class AiController {
         public void setTypeHint(String typeHint) { this.typeHint = typeHint; }
     }
 
+    public static class BatchRequest {
+        private List<ParseRequest> documents;
+
+        // Getters
+        public List<ParseRequest> getDocuments() { return documents; }
+
+        // Setters
+        public void setDocuments(List<ParseRequest> documents) { this.documents = documents; }
+    }
+
+    public static class BatchResult {
+        private final int index;
+        private final SuggestionResponse result;
+        private final String error;
+
+        BatchResult(int index, SuggestionResponse result, String error) { this.index = index; this.result = result; this.error = error; }
+
+        // Getters
+        public int getIndex() { return index; }
+        public SuggestionResponse getResult() { return result; }
+        public String getError() { return error; }
+    }
+
     public static class SuggestionResponse {
         private Detection detected;
         private List<Suggestion> suggestions;
@@ -214,36 +341,42 @@ public class AiController {
         private String date;
         private String party;
         private String piece;
-        private double ht;
-        private double tva;
-        private double ttc;
+        @Money.Amount private long ht;
+        @Money.Amount private long tva;
+        @Money.Amount private long ttc;
         public boolean hasHT;
         public boolean hasTVA;
         public boolean hasTTC;
         private int saleHints;
         private int purchaseHints;
+        private double saleScore;
+        private double purchaseScore;
 
         // Getters
         public String getType() { return type; }
         public String getDate() { return date; }
         public String getParty() { return party; }
         public String getPiece() { return piece; }
-        public double getHt() { return ht; }
-        public double getTva() { return tva; }
-        public double getTtc() { return ttc; }
+        public long getHt() { return ht; }
+        public long getTva() { return tva; }
+        public long getTtc() { return ttc; }
         public int getSaleHints() { return saleHints; }
         public int getPurchaseHints() { return purchaseHints; }
+        public double getSaleScore() { return saleScore; }
+        public double getPurchaseScore() { return purchaseScore; }
 
         // Setters
         public void setType(String type) { this.type = type; }
         public void setDate(String date) { this.date = date; }
         public void setParty(String party) { this.party = party; }
         public void setPiece(String piece) { this.piece = piece; }
-        public void setHt(double ht) { this.ht = ht; }
-        public void setTva(double tva) { this.tva = tva; }
-        public void setTtc(double ttc) { this.ttc = ttc; }
+        public void setHt(long ht) { this.ht = ht; }
+        public void setTva(long tva) { this.tva = tva; }
+        public void setTtc(long ttc) { this.ttc = ttc; }
         public void setSaleHints(int saleHints) { this.saleHints = saleHints; }
         public void setPurchaseHints(int purchaseHints) { this.purchaseHints = purchaseHints; }
+        public void setSaleScore(double saleScore) { this.saleScore = saleScore; }
+        public void setPurchaseScore(double purchaseScore) { this.purchaseScore = purchaseScore; }
     }
 
     public static class Suggestion {
@@ -271,19 +404,19 @@ public class AiController {
     public static class SuggestionLine {
         private String compte;
         private String libelle;
-        private double debit;
-        private double credit;
+        @Money.Amount private long debit;
+        @Money.Amount private long credit;
 
         // Getters
         public String getCompte() { return compte; }
         public String getLibelle() { return libelle; }
-        public double getDebit() { return debit; }
-        public double getCredit() { return credit; }
+        public long getDebit() { return debit; }
+        public long getCredit() { return credit; }
 
         // Setters
         public void setCompte(String compte) { this.compte = compte; }
         public void setLibelle(String libelle) { this.libelle = libelle; }
-        public void setDebit(double debit) { this.debit = debit; }
-        public void setCredit(double credit) { this.credit = credit; }
+        public void setDebit(long debit) { this.debit = debit; }
+        public void setCredit(long credit) { this.credit = credit; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.ledger.TrialBalance;
+import com.ecomptaia.store.DataRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/balance")
+public class BalanceController {
+    private final DataRepository repo;
+
+    public BalanceController(DataRepository repo) { this.repo = repo; }
+
+    /**
+     * Balance générale sur [from, to] (yyyy-MM ou yyyy-MM-dd, arrondi au mois), par compte détaillé
+     * ou regroupée sur level caractères (1 = classe), éventuellement limitée à une classe ou un préfixe.
+     */
+    @GetMapping
+    public ResponseEntity<?> get(@RequestParam(required = false) String from,
+                                 @RequestParam(required = false) String to,
+                                 @RequestParam(required = false) Integer level,
+                                 @RequestParam(required = false) String classe,
+                                 @RequestParam(required = false) String prefix) {
+        if (classe != null && !classe.matches("[1-9]")) return ResponseEntity.badRequest().body(Map.of("error","classe must be 1-9"));
+        if (level != null && level < 0) return ResponseEntity.badRequest().body(Map.of("error","level must be >= 0"));
+        String p = prefix != null && !prefix.isBlank() ? prefix.trim() : classe;
+        if (classe != null && p != null && !p.startsWith(classe)) return ResponseEntity.ok(result(List.of()));
+        return ResponseEntity.ok(result(repo.current().trialBalance().compute(blankToNull(from), blankToNull(to), level == null ? 0 : level, p)));
+    }
+
+    private static Map<String,Object> result(List<TrialBalance.Row> rows) {
+        long d = 0, c = 0, sd = 0, sc = 0;
+        for (TrialBalance.Row r : rows) { d += r.getDebit(); c += r.getCredit(); sd += r.getSoldeDebiteur(); sc += r.getSoldeCrediteur(); }
+        Map<String,Object> totals = new LinkedHashMap<>();
+        // même forme exacte que les lignes (Money.Amount): unités à deux décimales
+        totals.put("debit", BigDecimal.valueOf(d, 2)); totals.put("credit", BigDecimal.valueOf(c, 2));
+        totals.put("soldeDebiteur", BigDecimal.valueOf(sd, 2)); totals.put("soldeCrediteur", BigDecimal.valueOf(sc, 2));
+        Map<String,Object> out = new LinkedHashMap<>();
+        out.put("items", rows); out.put("totals", totals);
+        return out;
+    }
+
+    // Helpers
+    private static String blankToNull(String s) { return s == null || s.isBlank() ? null : s.trim(); }
+}
@@ -0,0 +1,94 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.cloture.PeriodCloser;
+import com.ecomptaia.ledger.ClosingIndex;
+import com.ecomptaia.model.Cloture;
+import com.ecomptaia.store.ColumnArchive;
+import com.ecomptaia.store.DataRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/clotures")
+public class ClotureController {
+    private final PeriodCloser closer;
+    private final DataRepository repo;
+
+    public ClotureController(PeriodCloser closer, DataRepository repo) { this.closer = closer; this.repo = repo; }
+
+    // Périodes closes, sans le détail des soldes
+    @GetMapping
+    public Map<String,Object> list() {
+        List<Map<String,Object>> items = new ArrayList<>();
+        for (Cloture c : repo.current().clotures().view()) {
+            Map<String,Object> m = new LinkedHashMap<>();
+            m.put("id", c.getId()); m.put("type", c.getType()); m.put("du", c.getDu()); m.put("au", c.getAu());
+            m.put("date", c.getDate()); m.put("ecritureAN", c.getEcritureAN());
+            m.put("comptes", c.getSoldes() == null ? 0 : c.getSoldes().size());
+            items.add(m);
+        }
+        return Map.of("items", items, "closedUntil", Objects.toString(repo.current().closures().closedUntil(), ""));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Cloture> get(@PathVariable String id) {
+        for (Cloture c : repo.current().clotures().view()) if (id.equals(c.getId())) return ResponseEntity.ok(c);
+        return ResponseEntity.notFound().build();
+    }
+
+    // Exercices archivés en colonnes
+    @GetMapping("/archives")
+    public List<Map<String,Object>> archives() {
+        List<Map<String,Object>> out = new ArrayList<>();
+        for (ColumnArchive a : repo.current().archives().all()) out.add(summary(a));
+        return out;
+    }
+
+    // Archive l'exercice clos en au (yyyy-MM): ses écritures ne sont plus lues que par la balance et le grand livre
+    @PostMapping("/archives")
+    public ResponseEntity<?> archive(@RequestParam String au) throws IOException {
+        String month;
+        try { month = YearMonth.parse(au.trim()).toString(); }
+        catch (DateTimeParseException e) { return ResponseEntity.badRequest().body(Map.of("error","au must be yyyy-MM")); }
+        try {
+            return ResponseEntity.status(201).body(summary(closer.archive(month)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static Map<String,Object> summary(ColumnArchive a) {
+        Map<String,Object> m = new LinkedHashMap<>();
+        m.put("du", a.du()); m.put("au", a.au()); m.put("ecritures", a.entries()); m.put("lignes", a.lines());
+        m.put("octets", a.file().length());
+        return m;
+    }
+
+    // Clôture jusqu'au mois au inclus (yyyy-MM, ou yyyy-MM-dd en fin de mois); type EXERCICE (défaut) ou MOIS
+    @PostMapping
+    public ResponseEntity<?> close(@RequestParam String au, @RequestParam(defaultValue = ClosingIndex.EXERCICE) String type) throws IOException {
+        String t = type.trim().toUpperCase(Locale.ROOT);
+        if (!t.equals(ClosingIndex.EXERCICE) && !t.equals(ClosingIndex.MOIS)) return ResponseEntity.badRequest().body(Map.of("error","type must be EXERCICE or MOIS"));
+        String month;
+        try {
+            month = YearMonth.parse(au.trim().substring(0, Math.min(7, au.trim().length()))).toString();
+            if (au.trim().length() > 7 && !LocalDate.parse(au.trim()).equals(YearMonth.parse(month).atEndOfMonth()))
+                return ResponseEntity.badRequest().body(Map.of("error","au must be the last day of a month"));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error","au must be yyyy-MM or yyyy-MM-dd"));
+        }
+        try {
+            return ResponseEntity.status(201).body(closer.close(t, month));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
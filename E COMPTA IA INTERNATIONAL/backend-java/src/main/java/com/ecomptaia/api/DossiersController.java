@@ -0,0 +1,40 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.store.DataRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/dossiers")
+public class DossiersController {
+    private final DataRepository repo;
+
+    public DossiersController(DataRepository repo) { this.repo = repo; }
+
+    // Dossiers existants (id vide = dossier par défaut), et pour ceux chargés: mémoire estimée et baux en cours
+    @GetMapping
+    public Map<String,Object> list() {
+        Map<String, long[]> loaded = repo.loaded();
+        List<Map<String,Object>> items = new ArrayList<>();
+        long total = 0;
+        for (String id : repo.list()) {
+            Map<String,Object> m = new LinkedHashMap<>();
+            long[] l = loaded.get(id);
+            m.put("id", id); m.put("charge", l != null);
+            if (l != null) { m.put("memoireEstimee", l[0]); m.put("baux", l[1]); total += l[0]; }
+            items.add(m);
+        }
+        Map<String,Object> out = new LinkedHashMap<>();
+        out.put("items", items); out.put("memoireEstimee", total); out.put("budget", repo.budgetBytes());
+        return out;
+    }
+
+    @PostMapping("/{id}")
+    public ResponseEntity<?> create(@PathVariable String id) {
+        if (DataRepository.DEFAULT.equals(id) || !DataRepository.validId(id)) return ResponseEntity.badRequest().body(Map.of("error","invalid dossier id"));
+        if (!repo.create(id)) return ResponseEntity.status(409).body(Map.of("error","dossier exists"));
+        return ResponseEntity.status(201).body(Map.of("id", id));
+    }
+}
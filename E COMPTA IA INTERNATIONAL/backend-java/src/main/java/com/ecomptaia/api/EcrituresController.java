@@ -1,55 +1,120 @@
 package com.ecomptaia.api;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ecomptaia.model.Money;
+import com.ecomptaia.ledger.ClosingIndex;
+import com.ecomptaia.ledger.LedgerIndex;
+import com.ecomptaia.ledger.LedgerQuery;
+import com.ecomptaia.rules.RuleEngine;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DataRepository;
+import com.ecomptaia.store.Dossier;
+import com.ecomptaia.store.GroupCommitter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
 import lombok.Data;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/ecritures")
 public class EcrituresController {
-    private final ObjectMapper om = new ObjectMapper();
-    private final File dataFile = new File("data/ecritures.json");
+    private final DataRepository repo;
+    private final GroupCommitter committer;
+    private final EcrituresImporter importer;
+    private final ObjectWriter ndjson;
+
+    public EcrituresController(DataRepository repo, GroupCommitter committer, EcrituresImporter importer) {
+        this.repo = repo; this.committer = committer; this.importer = importer;
+        this.ndjson = repo.mapper().writerFor(Ecriture.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
 
+    // Filtres: journal, from, to, compte (préfixe), tiers, min, max. Sans limit: liste complète (compatibilité).
     @GetMapping
-    public Map<String,Object> list(@RequestParam(required = false) String journal) throws IOException {
-        List<Ecriture> items = load();
-        if (journal!=null && !journal.isBlank()) items.removeIf(e -> !journal.equalsIgnoreCase(e.getJournalCode()));
-        return Map.of("items", items);
+    public Map<String,Object> list(LedgerQuery q, @RequestParam(required = false) Integer limit, @RequestParam(required = false) String cursor) {
+        Dossier d = repo.current();
+        CowList<Ecriture> view = d.ecritures().view();
+        LedgerIndex index = d.ledgerIndex();
+        if (limit == null && cursor == null) { List<Ecriture> items = new ArrayList<>(); q.forEach(view, index, items::add); return Map.of("items", items); }
+        LedgerQuery.Page page = q.page(view, index, cursor, Math.max(1, Math.min(limit == null ? 50 : limit, 1000)));
+        Map<String,Object> out = new LinkedHashMap<>();
+        out.put("items", page.getItems()); out.put("nextCursor", page.getNextCursor());
+        return out;
+    }
+
+    // Export NDJSON: une écriture par ligne, écrite au fil du parcours
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> stream(LedgerQuery q) {
+        Dossier d = repo.current();
+        CowList<Ecriture> view = d.ecritures().view();
+        LedgerIndex index = d.ledgerIndex();
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator g = ndjson.createGenerator(out)) {
+                g.setRootValueSeparator(null);
+                q.forEach(view, index, e -> { try { ndjson.writeValue(g, e); g.writeRaw('\n'); } catch (IOException ex) { throw new UncheckedIOException(ex); } });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
     }
 
+    // Validation (règles bloquantes) + écriture par lots (group commit): la réponse part une fois le lot persisté
     @PostMapping
-    public ResponseEntity<?> add(@RequestBody Ecriture e) throws IOException {
-        if (!isBalanced(e)) return ResponseEntity.badRequest().body(Map.of("error","unbalanced"));
-        e.setId(genId("ECR"));
-        double td = 0, tc = 0; for (Ligne l: e.getLignes()) { td += l.getDebit(); tc += l.getCredit(); }
-        e.setTotalDebit(td); e.setTotalCredit(tc);
-        List<Ecriture> items = load(); items.add(e); save(items);
-        return ResponseEntity.status(201).body(e);
+    public CompletableFuture<ResponseEntity<?>> add(@RequestBody Ecriture e) {
+        Dossier d = repo.current();
+        prepare(d, e);
+        return committer.submit(d, e).handle((ok, ex) -> {
+            if (ex == null) return ResponseEntity.status(201).body(ok);
+            Throwable c = ex instanceof CompletionException ? ex.getCause() : ex;
+            if (c instanceof ClosingIndex.Closed) return ResponseEntity.status(409).body(Map.of("error", c.getMessage()));
+            if (c instanceof RuleEngine.Rejected r) return ResponseEntity.badRequest().body(Map.of("error", r.getMessage(), "violations", r.getViolations()));
+            if (c instanceof IllegalArgumentException) return ResponseEntity.badRequest().body(Map.of("error", c.getMessage()));
+            throw new CompletionException(c);
+        });
+    }
+
+    // Import en masse NDJSON (application/x-ndjson) ou CSV (text/csv), lu en flux depuis le corps de la requête
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<?> importEntries(HttpServletRequest req) throws IOException {
+        String ct = Objects.toString(req.getContentType(), "");
+        try {
+            return ResponseEntity.ok(ct.contains("csv") ? importer.importCsv(req.getInputStream(), repo.current()) : importer.importNdjson(req.getInputStream(), repo.current()));
+        } catch (ClosingIndex.Closed c) {
+            return ResponseEntity.status(409).body(Map.of("error", c.getMessage()));
+        }
     }
 
+    // Une écriture d'une période close ne peut plus être supprimée
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@PathVariable String id) throws IOException {
-        List<Ecriture> items = load();
-        boolean changed = items.removeIf(x -> id.equals(x.getId()));
-        if (changed) save(items);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<?> delete(@PathVariable String id) throws IOException {
+        ClosingIndex closures = repo.current().closures();
+        boolean frozen = repo.current().ecritures().write(tx -> {
+            for (Ecriture x : tx.items()) if (id.equals(x.getId()) && closures.closed(x.getDate())) return true;
+            tx.removeIf(x -> id.equals(x.getId()));
+            return false;
+        });
+        return frozen ? ResponseEntity.status(409).body(Map.of("error", "period closed until " + closures.closedUntil())) : ResponseEntity.noContent().build();
     }
 
     @PostMapping("/demo")
     public Map<String,Object> generateDemo() throws IOException {
-        List<Ecriture> items = load();
-        items.addAll(demoSet());
-        save(items);
-        return Map.of("count", items.size());
+        ClosingIndex closures = repo.current().closures();
+        int count = repo.current().ecritures().write(tx -> {
+            for (Ecriture e : demoSet()) if (!closures.closed(e.getDate())) tx.add(e);
+            return tx.items().size();
+        });
+        return Map.of("count", count);
     }
 
-    private List<Ecriture> demoSet() {
+    List<Ecriture> demoSet() {
         List<Ecriture> list = new ArrayList<>();
         // Achat: 607/44566 à 401
         list.add(build("2025-01-05","ACH","FA-2025-0001", lines(
@@ -88,49 +153,47 @@ public class EcrituresController {
     }
 
     private Ecriture build(String date, String journal, String piece, List<Ligne> lignes) {
-        Ecriture e = new Ecriture(); e.setId(genId("ECR")); e.setDate(date); e.setJournalCode(journal); e.setPiece(piece); e.setReference(piece);
+        Ecriture e = new Ecriture(); e.setDate(date); e.setJournalCode(journal); e.setPiece(piece); e.setReference(piece);
         e.setLignes(lignes);
-        double td=0, tc=0; for (Ligne l: lignes) { td+=l.getDebit(); tc+=l.getCredit(); }
+        return prepare(repo.current(), e);
+    }
+
+    // Identifiant + totaux, avant écriture; la pièce manquante est numérotée au commit
+    public static Ecriture prepare(Dossier d, Ecriture e) {
+        e.setId(d.sequences().nextId("ECR"));
+        long td=0, tc=0; if (e.getLignes()!=null) for (Ligne l: e.getLignes()) { td+=l.getDebit(); tc+=l.getCredit(); }
         e.setTotalDebit(td); e.setTotalCredit(tc); return e;
     }
     private List<Ligne> lines(Ligne... ls) { return new ArrayList<>(Arrays.asList(ls)); }
-    private Ligne l(String c, String lib, double d, double cdt) { Ligne x = new Ligne(); x.setCompte(c); x.setLibelle(lib); x.setDebit(d); x.setCredit(cdt); return x; }
+    private Ligne l(String c, String lib, double d, double cdt) { Ligne x = new Ligne(); x.setCompte(c); x.setLibelle(lib); x.setDebit(Money.of(d)); x.setCredit(Money.of(cdt)); return x; }
 
-    private boolean isBalanced(Ecriture e) {
+    public static boolean isBalanced(Ecriture e) {
         if (e.getLignes()==null || e.getLignes().isEmpty()) return false;
-        double td = 0, tc = 0; for (Ligne l: e.getLignes()) { td += l.getDebit(); tc += l.getCredit(); }
-        return Math.round((td-tc)*100)==0;
-    }
-
-    private List<Ecriture> load() throws IOException {
-        if (!dataFile.exists()) return new ArrayList<>();
-        Map<String,Object> map = om.readValue(dataFile, new TypeReference<Map<String,Object>>(){});
-        return om.convertValue(map.getOrDefault("items", List.of()), new TypeReference<List<Ecriture>>(){});
+        long td = 0, tc = 0; for (Ligne l: e.getLignes()) { td += l.getDebit(); tc += l.getCredit(); }
+        return td == tc;
     }
-    private void save(List<Ecriture> items) throws IOException { dataFile.getParentFile().mkdirs(); om.writeValue(dataFile, Map.of("items", items)); }
-    private String genId(String p) { return p+"-"+System.currentTimeMillis()+"-"+(int)(Math.random()*1e4); }
 
     public static class Ligne {
         private String compte;
         private String libelle;
-        private double debit;
-        private double credit;
+        @Money.Amount private long debit;
+        @Money.Amount private long credit;
         private String tiersId;
         private String tiersName;
 
         // Getters
         public String getCompte() { return compte; }
         public String getLibelle() { return libelle; }
-        public double getDebit() { return debit; }
-        public double getCredit() { return credit; }
+        public long getDebit() { return debit; }
+        public long getCredit() { return credit; }
         public String getTiersId() { return tiersId; }
         public String getTiersName() { return tiersName; }
 
         // Setters
         public void setCompte(String compte) { this.compte = compte; }
         public void setLibelle(String libelle) { this.libelle = libelle; }
-        public void setDebit(double debit) { this.debit = debit; }
-        public void setCredit(double credit) { this.credit = credit; }
+        public void setDebit(long debit) { this.debit = debit; }
+        public void setCredit(long credit) { this.credit = credit; }
         public void setTiersId(String tiersId) { this.tiersId = tiersId; }
         public void setTiersName(String tiersName) { this.tiersName = tiersName; }
     }
@@ -142,8 +205,8 @@ public class EcrituresController {
         private String piece;
         private String reference;
         private List<Ligne> lignes;
-        private double totalDebit;
-        private double totalCredit;
+        @Money.Amount private long totalDebit;
+        @Money.Amount private long totalCredit;
 
         // Getters
         public String getId() { return id; }
@@ -152,8 +215,8 @@ public class EcrituresController {
         public String getPiece() { return piece; }
         public String getReference() { return reference; }
         public List<Ligne> getLignes() { return lignes; }
-        public double getTotalDebit() { return totalDebit; }
-        public double getTotalCredit() { return totalCredit; }
+        public long getTotalDebit() { return totalDebit; }
+        public long getTotalCredit() { return totalCredit; }
 
         // Setters
         public void setId(String id) { this.id = id; }
@@ -162,7 +225,7 @@ public class EcrituresController {
         public void setPiece(String piece) { this.piece = piece; }
         public void setReference(String reference) { this.reference = reference; }
         public void setLignes(List<Ligne> lignes) { this.lignes = lignes; }
-        public void setTotalDebit(double totalDebit) { this.totalDebit = totalDebit; }
-        public void setTotalCredit(double totalCredit) { this.totalCredit = totalCredit; }
+        public void setTotalDebit(long totalDebit) { this.totalDebit = totalDebit; }
+        public void setTotalCredit(long totalCredit) { this.totalCredit = totalCredit; }
     }
 }
\ No newline at end of file
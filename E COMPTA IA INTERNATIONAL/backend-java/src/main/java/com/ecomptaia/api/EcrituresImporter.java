@@ -0,0 +1,168 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+import com.ecomptaia.ledger.ClosingIndex;
+import com.ecomptaia.model.Money;
+import com.ecomptaia.rules.RuleEngine;
+import com.ecomptaia.rules.Violation;
+import com.ecomptaia.store.Dossier;
+import com.ecomptaia.store.Sequences;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Import en masse d'écritures, lu en flux (une écriture à la fois) et validé en lots de chunk-size.
+ * NDJSON: une écriture JSON par ligne. CSV: une ligne par mouvement, en-tête obligatoire
+ * (date,journal,piece,reference,compte,libelle,debit,credit,tiersId,tiersName); les lignes consécutives
+ * de même pièce/date/journal forment une écriture. Les écritures datées dans une période close sont rejetées.
+ */
+@Component
+public class EcrituresImporter {
+    private final ObjectReader ndjson;
+    private final CsvMapper csv = new CsvMapper();
+    private final int chunkSize;
+    private final int maxErrors;
+    private final RuleEngine rules;
+
+    public EcrituresImporter(RuleEngine rules,
+                             @Value("${ecompta.import.chunk-size:5000}") int chunkSize,
+                             @Value("${ecompta.import.max-errors:1000}") int maxErrors) {
+        this.ndjson = new ObjectMapper().readerFor(Ecriture.class);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxErrors = maxErrors;
+        this.rules = rules;
+    }
+
+    public Report importNdjson(InputStream in, Dossier d) throws IOException {
+        Report r = new Report();
+        List<Ecriture> chunk = new ArrayList<>(chunkSize);
+        BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String s; long line = 0;
+        while ((s = br.readLine()) != null) {
+            line++;
+            if (s.isBlank()) continue;
+            Ecriture e;
+            try { e = ndjson.readValue(s); }
+            catch (JsonProcessingException ex) { r.error(line, null, "invalid json: " + ex.getOriginalMessage(), maxErrors); continue; }
+            accept(e, line, chunk, d, r);
+        }
+        flush(chunk, d, r);
+        return r;
+    }
+
+    public Report importCsv(InputStream in, Dossier d) throws IOException {
+        Report r = new Report();
+        List<Ecriture> chunk = new ArrayList<>(chunkSize);
+        CsvSchema schema = CsvSchema.emptySchema().withHeader().withColumnReordering(true);
+        try (MappingIterator<Map<String, String>> it = csv.readerFor(Map.class).with(schema).readValues(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            Ecriture cur = null; long curLine = 0;
+            while (true) {
+                Map<String, String> row; long line;
+                try {
+                    if (!it.hasNextValue()) break;
+                    row = it.nextValue();
+                    line = it.getCurrentLocation().getLineNr() - 1;
+                } catch (JsonProcessingException ex) {
+                    // ligne mal formée (colonnes en trop...): le lecteur reprend à la ligne suivante
+                    r.error(it.getCurrentLocation().getLineNr(), null, "invalid csv: " + ex.getOriginalMessage(), maxErrors);
+                    continue;
+                } catch (RuntimeException ex) {
+                    r.error(it.getCurrentLocation().getLineNr(), null, "invalid csv: " + ex.getMessage(), maxErrors);
+                    continue;
+                }
+                String date = row.get("date"), journal = row.get("journal"), piece = row.get("piece");
+                if (cur == null || !Objects.equals(cur.getPiece(), piece) || !Objects.equals(cur.getDate(), date) || !Objects.equals(cur.getJournalCode(), journal)) {
+                    if (cur != null) accept(cur, curLine, chunk, d, r);
+                    cur = new Ecriture(); cur.setDate(date); cur.setJournalCode(journal); cur.setPiece(piece);
+                    cur.setReference(Optional.ofNullable(row.get("reference")).filter(x -> !x.isBlank()).orElse(piece));
+                    cur.setLignes(new ArrayList<>()); curLine = line;
+                }
+                if (cur.getLignes() == null) continue;
+                try {
+                    Ligne l = new Ligne();
+                    l.setCompte(row.get("compte")); l.setLibelle(row.get("libelle"));
+                    l.setDebit(amount(row.get("debit"))); l.setCredit(amount(row.get("credit")));
+                    l.setTiersId(blankToNull(row.get("tiersId"))); l.setTiersName(blankToNull(row.get("tiersName")));
+                    cur.getLignes().add(l);
+                } catch (NumberFormatException | ArithmeticException ex) {
+                    r.error(line, piece, "invalid amount", maxErrors);
+                    cur.setLignes(null); // écriture entière rejetée
+                }
+            }
+            if (cur != null) accept(cur, curLine, chunk, d, r);
+        }
+        flush(chunk, d, r);
+        return r;
+    }
+
+    private void accept(Ecriture e, long line, List<Ecriture> chunk, Dossier d, Report r) throws IOException {
+        if (e.getLignes() == null) return; // déjà comptée en erreur
+        if (d.closures().closed(e.getDate())) { r.error(line, e.getPiece(), "period closed until " + d.closures().closedUntil(), maxErrors); return; }
+        List<Violation> v = rules.blockingViolations(d, e);
+        if (!v.isEmpty()) { r.error(line, e.getPiece(), v.get(0).getRegle() + ": " + v.get(0).getMessage(), maxErrors); return; }
+        chunk.add(EcrituresController.prepare(d, e));
+        if (chunk.size() >= chunkSize) flush(chunk, d, r);
+    }
+
+    private void flush(List<Ecriture> chunk, Dossier d, Report r) throws IOException {
+        if (chunk.isEmpty()) return;
+        d.ecritures().write(tx -> {
+            // clôture intervenue depuis la validation du lot
+            for (Ecriture e : chunk) if (d.closures().closed(e.getDate())) throw new ClosingIndex.Closed(d.closures().closedUntil());
+            Sequences.Numbering pieces = d.sequences().numbering();
+            for (Ecriture e : chunk) pieces.assign(e);
+            tx.addAll(chunk); return null;
+        });
+        r.imported += chunk.size();
+        chunk.clear();
+    }
+
+    private static long amount(String s) {
+        if (s == null || s.isBlank()) return 0;
+        return Money.parse(s.replace(" ", "").replace(" ", "").replace(',', '.'));
+    }
+
+    private static String blankToNull(String s) { return s == null || s.isBlank() ? null : s; }
+
+    public static class Report {
+        private long imported;
+        private long rejected;
+        private boolean truncated;
+        private final List<LineError> errors = new ArrayList<>();
+
+        void error(long line, String piece, String message, int max) {
+            rejected++;
+            if (errors.size() < max) errors.add(new LineError(line, piece, message)); else truncated = true;
+        }
+
+        // Getters
+        public long getImported() { return imported; }
+        public long getRejected() { return rejected; }
+        public boolean isTruncated() { return truncated; }
+        public List<LineError> getErrors() { return errors; }
+    }
+
+    public static class LineError {
+        private final long line;
+        private final String piece;
+        private final String error;
+
+        LineError(long line, String piece, String error) { this.line = line; this.piece = piece; this.error = error; }
+
+        // Getters
+        public long getLine() { return line; }
+        public String getPiece() { return piece; }
+        public String getError() { return error; }
+    }
+}
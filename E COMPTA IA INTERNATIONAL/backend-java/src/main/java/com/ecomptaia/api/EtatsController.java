@@ -0,0 +1,22 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.ledger.StatementsEngine;
+import com.ecomptaia.store.DataRepository;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/etats")
+public class EtatsController {
+    private final DataRepository repo;
+
+    public EtatsController(DataRepository repo) { this.repo = repo; }
+
+    /** Compte de résultat et bilan sur [from, to] (yyyy-MM ou yyyy-MM-dd, arrondi au mois). */
+    @GetMapping
+    public StatementsEngine.Statements get(@RequestParam(required = false) String from, @RequestParam(required = false) String to) {
+        return repo.current().statements().compute(blankToNull(from), blankToNull(to));
+    }
+
+    // Helpers
+    private static String blankToNull(String s) { return s == null || s.isBlank() ? null : s.trim(); }
+}
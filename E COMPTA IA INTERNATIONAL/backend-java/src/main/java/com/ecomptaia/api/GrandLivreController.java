@@ -0,0 +1,33 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.store.DataRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/grand-livre")
+public class GrandLivreController {
+    private static final int MAX_SIZE = 1000;
+
+    private final DataRepository repo;
+
+    public GrandLivreController(DataRepository repo) { this.repo = repo; }
+
+    /** Mouvements d'un compte et de ses sous-comptes (compte d'au moins 3 caractères), page numérotée à partir de 0. */
+    @GetMapping("/{compte}")
+    public ResponseEntity<?> get(@PathVariable String compte,
+                                 @RequestParam(required = false) String from,
+                                 @RequestParam(required = false) String to,
+                                 @RequestParam(defaultValue = "0") int page,
+                                 @RequestParam(defaultValue = "100") int size) {
+        if (compte.length() < 3) return ResponseEntity.badRequest().body(Map.of("error","compte must have at least 3 characters"));
+        if (page < 0) return ResponseEntity.badRequest().body(Map.of("error","page must be >= 0"));
+        size = Math.max(1, Math.min(size, MAX_SIZE));
+        return ResponseEntity.ok(repo.current().generalLedger().page(compte, blankToNull(from), blankToNull(to), page, size));
+    }
+
+    // Helpers
+    private static String blankToNull(String s) { return s == null || s.isBlank() ? null : s.trim(); }
+}
@@ -0,0 +1,51 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.lettrage.LettrageEngine;
+import com.ecomptaia.model.Lettre;
+import com.ecomptaia.store.DataRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/lettrage")
+public class LettrageController {
+    private final LettrageEngine engine;
+    private final DataRepository repo;
+
+    public LettrageController(LettrageEngine engine, DataRepository repo) { this.engine = engine; this.repo = repo; }
+
+    @GetMapping
+    public Map<String,Object> list(@RequestParam(required = false) String compte,
+                                   @RequestParam(required = false) String tiersId,
+                                   @RequestParam(defaultValue = "1000") int limit) {
+        String c = blankToNull(compte), t = blankToNull(tiersId);
+        List<Lettre> items = new ArrayList<>();
+        long total = 0;
+        for (Lettre l : repo.current().lettrage().view()) {
+            if (c != null && (l.getCompte() == null || !l.getCompte().startsWith(c))) continue;
+            if (t != null && !t.equals(l.getTiersId())) continue;
+            if (items.size() < Math.max(0, limit)) items.add(l);
+            total++;
+        }
+        return Map.of("items", items, "total", total);
+    }
+
+    // Lettrage automatique des lignes ouvertes, éventuellement limité à un compte (préfixe) et / ou un tiers
+    @PostMapping("/auto")
+    public LettrageEngine.Report auto(@RequestParam(required = false) String compte, @RequestParam(required = false) String tiersId) throws IOException {
+        return engine.run(blankToNull(compte), blankToNull(tiersId));
+    }
+
+    // Délettrage: les lignes de la lettre redeviennent ouvertes
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable String id) throws IOException {
+        boolean removed = repo.current().lettrage().write(tx -> tx.removeIf(l -> id.equals(l.getId())));
+        return removed ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    // Helpers
+    private static String blankToNull(String s) { return s == null || s.isBlank() ? null : s.trim(); }
+}
@@ -1,30 +1,34 @@
 package com.ecomptaia.api;
 
+import com.ecomptaia.ledger.AccountTrie;
+import com.ecomptaia.store.DataRepository;
+import com.ecomptaia.store.Dossier;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
 @RestController
 @RequestMapping("/api/plan")
 public class PlanController {
-    private final ObjectMapper om = new ObjectMapper();
-    private final File dataFile = new File("data/plan.json");
+    private final ObjectMapper om;
+    private final DataRepository repo;
+
+    public PlanController(DataRepository repo) { this.om = repo.mapper(); this.repo = repo; }
 
     @GetMapping
-    public Map<String, Object> getAll() throws IOException {
-        return Map.of("items", load());
+    public Map<String, Object> getAll() {
+        return Map.of("items", repo.current().plan().view());
     }
 
     @PutMapping
     public Map<String, Object> replace(@RequestBody Map<String, Object> body) throws IOException {
         List<AccountItem> items = om.convertValue(body.getOrDefault("items", List.of()), new TypeReference<List<AccountItem>>(){});
-        save(items);
+        repo.current().plan().write(tx -> { tx.replaceAll(items); return null; });
         return Map.of("items", items);
     }
 
@@ -35,31 +39,45 @@ public class PlanController {
         String intitule = Objects.toString(body.get("intitule"), null);
         String description = Objects.toString(body.get("description"), "");
         if (code == null || intitule == null) throw new IllegalArgumentException("code & intitule required");
-        List<AccountItem> items = load();
-        if (items.stream().anyMatch(i -> code.equals(i.getCode()))) throw new IllegalStateException("code already exists");
         AccountItem it = new AccountItem();
         it.setCode(code); it.setIntitule(intitule); it.setParent(parentCode); it.setClasse(code.substring(0,1)); it.setDescription(description); it.setLocked(false);
-        items.add(it); save(items);
+        Dossier d = repo.current();
+        d.plan().write(tx -> {
+            if (d.accounts().contains(code)) throw new IllegalStateException("code already exists");
+            tx.add(it); return it;
+        });
         return Map.of("ok", true, "item", it);
     }
 
     @DeleteMapping("/subaccount/{code}")
     public ResponseEntity<Void> delete(@PathVariable String code) throws IOException {
-        List<AccountItem> items = load();
-        items.removeIf(i -> code.equals(i.getCode()));
-        save(items);
+        Dossier d = repo.current();
+        if (d.accounts().contains(code)) d.plan().write(tx -> tx.removeIf(i -> code.equals(i.getCode())));
         return ResponseEntity.noContent().build();
     }
 
-    private List<AccountItem> load() throws IOException {
-        if (!dataFile.exists()) return new ArrayList<>();
-        Map<String,Object> map = om.readValue(dataFile, new TypeReference<Map<String,Object>>(){});
-        List<AccountItem> items = om.convertValue(map.getOrDefault("items", List.of()), new TypeReference<List<AccountItem>>(){});
-        return new ArrayList<>(items);
+    @GetMapping("/lookup/{code}")
+    public ResponseEntity<AccountItem> lookup(@PathVariable String code) {
+        AccountItem it = repo.current().accounts().get(code);
+        return it == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(it);
+    }
+
+    // Comptes sous un préfixe ("41" → 41, 411, 4111...), imbriqués par compte parent le plus proche
+    @GetMapping("/subtree/{prefix}")
+    public Map<String, Object> subtree(@PathVariable String prefix) {
+        return Map.of("items", repo.current().accounts().subtree(prefix));
     }
-    private void save(List<AccountItem> items) throws IOException {
-        dataFile.getParentFile().mkdirs();
-        om.writeValue(dataFile, Map.of("items", items));
+
+    // Compte du plan pour un compte d'écriture: lui-même ou son plus proche parent (préfixe le plus long)
+    @GetMapping("/resolve/{compte}")
+    public ResponseEntity<?> resolve(@PathVariable String compte) {
+        AccountTrie accounts = repo.current().accounts();
+        AccountItem it = accounts.nearest(compte, 1);
+        if (it == null) return ResponseEntity.notFound().build();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("compte", compte); out.put("exact", compte.equals(it.getCode())); out.put("account", it);
+        out.put("parent", accounts.parent(it.getCode()));
+        return ResponseEntity.ok(out);
     }
 
     public static class AccountItem {
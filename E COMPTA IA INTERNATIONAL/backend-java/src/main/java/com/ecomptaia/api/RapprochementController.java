@@ -0,0 +1,79 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.model.Rapprochement;
+import com.ecomptaia.rapprochement.BankReconciler;
+import com.ecomptaia.rapprochement.BankReconciler.Paire;
+import com.ecomptaia.rapprochement.BankReconciler.ReleveLigne;
+import com.ecomptaia.store.DataRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/rapprochement")
+public class RapprochementController {
+    private final BankReconciler reconciler;
+    private final DataRepository repo;
+
+    public RapprochementController(BankReconciler reconciler, DataRepository repo) { this.reconciler = reconciler; this.repo = repo; }
+
+    @GetMapping
+    public Map<String,Object> list(@RequestParam(required = false) String compte,
+                                   @RequestParam(required = false) String releve,
+                                   @RequestParam(defaultValue = "1000") int limit) {
+        String c = blankToNull(compte), r = blankToNull(releve);
+        List<Rapprochement> items = new ArrayList<>();
+        long total = 0;
+        for (Rapprochement x : repo.current().rapprochements().view()) {
+            if (c != null && (x.getCompte() == null || !x.getCompte().startsWith(c))) continue;
+            if (r != null && !r.equals(x.getReleve())) continue;
+            if (items.size() < Math.max(0, limit)) items.add(x);
+            total++;
+        }
+        return Map.of("items", items, "total", total);
+    }
+
+    // Propositions pour les lignes d'un relevé, sans rien enregistrer
+    @PostMapping("/propositions")
+    public ResponseEntity<?> propose(@RequestBody Releve r) {
+        if (r.getLignes() == null) return ResponseEntity.badRequest().body(Map.of("error","lignes required"));
+        return ResponseEntity.ok(reconciler.propose(blankToNull(r.getCompte()), r.getLignes()));
+    }
+
+    // Validation des couples retenus (tels que proposés)
+    @PostMapping
+    public ResponseEntity<?> validate(@RequestBody Releve r) throws IOException {
+        if (r.getPaires() == null) return ResponseEntity.badRequest().body(Map.of("error","paires required"));
+        return ResponseEntity.ok(reconciler.validate(blankToNull(r.getCompte()), blankToNull(r.getReference()), r.getPaires()));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable String id) throws IOException {
+        boolean removed = repo.current().rapprochements().write(tx -> tx.removeIf(x -> id.equals(x.getId())));
+        return removed ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    // Helpers
+    private static String blankToNull(String s) { return s == null || s.isBlank() ? null : s.trim(); }
+
+    public static class Releve {
+        private String compte;
+        private String reference;
+        private List<ReleveLigne> lignes;
+        private List<Paire> paires;
+
+        // Getters
+        public String getCompte() { return compte; }
+        public String getReference() { return reference; }
+        public List<ReleveLigne> getLignes() { return lignes; }
+        public List<Paire> getPaires() { return paires; }
+
+        // Setters
+        public void setCompte(String compte) { this.compte = compte; }
+        public void setReference(String reference) { this.reference = reference; }
+        public void setLignes(List<ReleveLigne> lignes) { this.lignes = lignes; }
+        public void setPaires(List<Paire> paires) { this.paires = paires; }
+    }
+}
@@ -0,0 +1,45 @@
+package com.ecomptaia.api;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.rules.RuleEngine;
+import com.ecomptaia.rules.Violation;
+import com.ecomptaia.store.DataRepository;
+import com.ecomptaia.store.Dossier;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/validation")
+public class ValidationController {
+    private final RuleEngine rules;
+    private final DataRepository repo;
+
+    public ValidationController(RuleEngine rules, DataRepository repo) { this.rules = rules; this.repo = repo; }
+
+    @GetMapping("/regles")
+    public Map<String,Object> regles() { return rules.describe(); }
+
+    // Contrôle d'une écriture sans l'enregistrer; valide = aucune règle bloquante en défaut
+    @PostMapping("/ecriture")
+    public Map<String,Object> check(@RequestBody Ecriture e) {
+        Dossier d = repo.current();
+        List<Violation> v = rules.validate(d, e);
+        Map<String,Object> out = new LinkedHashMap<>();
+        out.put("valide", rules.blockingViolations(d, e).isEmpty()); out.put("violations", v);
+        return out;
+    }
+
+    // Revalidation du grand livre (toutes règles), éventuellement limitée à [from, to]
+    @GetMapping("/grand-livre")
+    public ResponseEntity<?> revalidate(@RequestParam(required = false) String from,
+                                        @RequestParam(required = false) String to,
+                                        @RequestParam(defaultValue = "1000") int limit) {
+        if (limit < 0) return ResponseEntity.badRequest().body(Map.of("error","limit must be >= 0"));
+        return ResponseEntity.ok(rules.revalidate(repo.current(), blankToNull(from), blankToNull(to), Math.min(limit, 100000)));
+    }
+
+    // Helpers
+    private static String blankToNull(String s) { return s == null || s.isBlank() ? null : s.trim(); }
+}
@@ -0,0 +1,189 @@
+package com.ecomptaia.cloture;
+
+import com.ecomptaia.api.EcrituresController;
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+import com.ecomptaia.ledger.ClosingIndex;
+import com.ecomptaia.ledger.LedgerArchives;
+import com.ecomptaia.ledger.TrialBalance;
+import com.ecomptaia.model.Cloture;
+import com.ecomptaia.store.ColumnArchive;
+import com.ecomptaia.store.DataRepository;
+import com.ecomptaia.store.Dossier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Clôture des périodes (mois ou exercice), dans l'ordre et sans trou. La clôture s'exécute dans une transaction
+ * des écritures: aucune écriture ne s'intercale entre l'instantané et le gel des mois clos, la clôture n'est
+ * enregistrée qu'une fois l'écriture d'à-nouveaux validée. Pour chaque compte,
+ * les mouvements de la période et le solde de fin (cumulé depuis le début de l'exercice) sont enregistrés dans
+ * le clotures.json du dossier, où la balance les relit au lieu de resommer les mois clos. La clôture d'un exercice
+ * génère l'écriture d'à-nouveaux du premier jour du mois suivant: soldes des comptes des classes reportées, et leur
+ * contrepartie, le résultat, en compte-benefice ou compte-perte. Un exercice clos peut ensuite être archivé en
+ * colonnes (voir ColumnArchive): ses écritures quittent le jeu de données et le tas.
+ */
+@Component
+public class PeriodCloser {
+    private final DataRepository repo;
+    private final String[] classes;
+    private final String journal;
+    private final String compteBenefice;
+    private final String comptePerte;
+
+    public PeriodCloser(DataRepository repo,
+                        @Value("${ecompta.cloture.classes-reportees:1,2,3,4,5}") String classes,
+                        @Value("${ecompta.cloture.journal:AN}") String journal,
+                        @Value("${ecompta.cloture.compte-benefice:131}") String compteBenefice,
+                        @Value("${ecompta.cloture.compte-perte:139}") String comptePerte) {
+        this.repo = repo;
+        this.classes = Arrays.stream(classes.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toArray(String[]::new);
+        this.journal = journal;
+        this.compteBenefice = compteBenefice;
+        this.comptePerte = comptePerte;
+    }
+
+    /** Clôt les mois jusqu'à au (yyyy-MM, mois écoulé) inclus; type EXERCICE ou MOIS. */
+    public Cloture close(String type, String au) throws IOException {
+        if (YearMonth.parse(au).compareTo(YearMonth.now()) >= 0) throw new IllegalArgumentException("period not ended: " + au);
+        Dossier d = repo.current();
+        ClosingIndex closures = d.closures();
+        TrialBalance balance = d.trialBalance();
+        Cloture c = new Cloture();
+        try {
+            // à-nouveaux validés (WAL) d'abord; les mois restent figés jusqu'à l'enregistrement de la clôture
+            d.ecritures().write(tx -> {
+                String last = closures.closedUntil();
+                if (last != null && au.compareTo(last) <= 0) throw new IllegalStateException("already closed until " + last);
+                String first = balance.firstMonth();
+                String du = last != null ? ClosingIndex.next(last) : first != null && first.compareTo(au) < 0 ? first : au;
+                // à-nouveaux déjà passés pour cette clôture (arrêt avant son enregistrement): pas de second report
+                String id = "CLO-" + au, anDate = ClosingIndex.next(au) + "-01";
+                for (Ecriture e : tx.items()) {
+                    if (anDate.equals(e.getDate()) && journal.equals(e.getJournalCode()) && id.equals(e.getReference()))
+                        throw new IllegalStateException("opening entry " + e.getId() + " already posted for " + id + ", delete it before closing again");
+                }
+
+                Map<String, Cloture.Solde> soldes = new TreeMap<>();
+                for (TrialBalance.Row r : balance.compute(du, au, 0, null)) {
+                    Cloture.Solde s = solde(soldes, r.getCompte());
+                    s.setDebit(r.getDebit()); s.setCredit(r.getCredit());
+                }
+                // sans mois de début: depuis le début de l'exercice
+                for (TrialBalance.Row r : balance.compute(null, au, 0, null)) solde(soldes, r.getCompte()).setSolde(r.getDebit() - r.getCredit());
+
+                c.setId(id);
+                c.setType(type); c.setDu(du); c.setAu(au);
+                c.setDate(LocalDate.now().toString());
+                c.setSoldes(new ArrayList<>(soldes.values()));
+                if (ClosingIndex.EXERCICE.equals(type)) {
+                    Ecriture an = aNouveaux(d, c, soldes.values());
+                    if (an != null) { d.sequences().numbering().assign(an); tx.add(an); c.setEcritureAN(an.getId()); }
+                }
+                if (!closures.freeze(c)) throw new IllegalStateException("closing in progress");
+                return null;
+            });
+            // clotures.json réécrit (fsync) avant de répondre
+            d.clotures().write(t -> { t.add(c); return null; });
+            return c;
+        } finally {
+            closures.unfreeze(c);
+        }
+    }
+
+    /**
+     * Archive l'exercice clos se terminant en au (yyyy-MM): écriture de l'archive, puis retrait de ses écritures dans
+     * la même transaction. Un arrêt entre les deux est achevé au chargement suivant du dossier; un retrait en échec
+     * désinscrit et supprime l'archive.
+     */
+    public ColumnArchive archive(String au) throws IOException {
+        Dossier d = repo.current();
+        ClosingIndex closures = d.closures();
+        LedgerArchives archives = d.archives();
+        AtomicReference<ColumnArchive> created = new AtomicReference<>();
+        try {
+            return d.ecritures().write(tx -> {
+                Cloture c = null;
+                for (Cloture x : closures.within(null, au)) if (au.equals(x.getAu())) c = x;
+                if (c == null || !ClosingIndex.EXERCICE.equals(c.getType())) throw new IllegalStateException("no exercice closed in " + au);
+                if (archives.covers(au)) throw new IllegalStateException("already archived: " + au);
+                String start = closures.exerciceStart(au);
+                List<Ecriture> items = new ArrayList<>();
+                String du = au;
+                for (Ecriture e : tx.items()) {
+                    String m = e.getDate() == null || e.getDate().length() < 7 ? null : e.getDate().substring(0, 7);
+                    if (m == null || m.compareTo(au) > 0 || (start != null && m.compareTo(start) < 0)) continue;
+                    items.add(e);
+                    if (m.compareTo(du) < 0) du = m;
+                }
+                if (start != null) du = start;
+                ColumnArchive a;
+                try {
+                    File f = archives.file(du, au);
+                    ColumnArchive.write(f, du, au, items);
+                    created.set(a = ColumnArchive.open(f));
+                    archives.add(a);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                Set<Ecriture> archived = Collections.newSetFromMap(new IdentityHashMap<>());
+                archived.addAll(items);
+                tx.removeIf(archived::contains);
+                return a;
+            });
+        } catch (IOException | RuntimeException ex) {
+            // écritures toujours dans le journal: l'archive ne doit ni compter ni survivre au redémarrage
+            ColumnArchive a = created.get();
+            if (a != null) {
+                archives.remove(a);
+                try { a.close(); } catch (IOException e) { ex.addSuppressed(e); }
+                if (!a.file().delete()) ex.addSuppressed(new IOException("cannot delete " + a.file()));
+            }
+            throw ex;
+        }
+    }
+
+    // À-nouveaux au premier jour de l'exercice suivant; le résultat équilibre les soldes reportés
+    private Ecriture aNouveaux(Dossier d, Cloture c, Collection<Cloture.Solde> soldes) {
+        List<Ligne> lignes = new ArrayList<>();
+        long reporte = 0;
+        for (Cloture.Solde s : soldes) {
+            if (s.getSolde() == 0 || !reported(s.getCompte())) continue;
+            lignes.add(ligne(s.getCompte(), "À nouveau", s.getSolde()));
+            reporte += s.getSolde();
+        }
+        c.setResultat(reporte);
+        if (reporte != 0) lignes.add(ligne(reporte > 0 ? compteBenefice : comptePerte, "Résultat de l'exercice", -reporte));
+        if (lignes.isEmpty()) return null;
+        String mois = ClosingIndex.next(c.getAu());
+        Ecriture e = new Ecriture();
+        e.setDate(mois + "-01"); e.setJournalCode(journal);
+        e.setReference(c.getId()); // pièce numérotée dans la séquence du journal
+        e.setLignes(lignes);
+        return EcrituresController.prepare(d, e);
+    }
+
+    private boolean reported(String compte) {
+        for (String p : classes) if (compte.startsWith(p)) return true;
+        return false;
+    }
+
+    private static Cloture.Solde solde(Map<String, Cloture.Solde> soldes, String compte) {
+        return soldes.computeIfAbsent(compte, k -> { Cloture.Solde s = new Cloture.Solde(); s.setCompte(k); return s; });
+    }
+
+    private static Ligne ligne(String compte, String libelle, long net) {
+        Ligne l = new Ligne();
+        l.setCompte(compte); l.setLibelle(libelle);
+        l.setDebit(Math.max(0, net)); l.setCredit(Math.max(0, -net));
+        return l;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ecomptaia.config;
+
+import com.ecomptaia.store.DataRepository;
+import com.ecomptaia.store.Dossier;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Choix du dossier de la requête: en-tête X-Dossier (absent = dossier par défaut). Le dossier est pris sous bail
+ * et lié au thread le temps du traitement; 400 si l'identifiant est invalide, 404 si le dossier n'existe pas.
+ */
+@Component
+public class DossierFilter extends OncePerRequestFilter {
+    public static final String HEADER = "X-Dossier";
+
+    private final DataRepository repo;
+
+    public DossierFilter(DataRepository repo) { this.repo = repo; }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain) throws ServletException, IOException {
+        String h = req.getHeader(HEADER);
+        String id = h == null ? DataRepository.DEFAULT : h.trim();
+        if (!DataRepository.validId(id)) { error(res, 400, "invalid dossier"); return; }
+        if (!repo.exists(id)) { error(res, 404, "unknown dossier"); return; }
+        Dossier d = repo.open(id);
+        repo.bind(d);
+        try { chain.doFilter(req, res); }
+        finally { repo.unbind(); d.release(); }
+    }
+
+    private static void error(HttpServletResponse res, int status, String message) throws IOException {
+        res.setStatus(status);
+        res.setContentType("application/json");
+        res.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+}
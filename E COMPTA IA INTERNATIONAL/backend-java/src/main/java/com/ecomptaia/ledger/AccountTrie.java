@@ -0,0 +1,128 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.api.PlanController.AccountItem;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DatasetListener;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Arbre des préfixes du plan comptable: un nœud par caractère de code, le compte porté par le nœud de son code.
+ * Recherche exacte et compte parent le plus proche en O(longueur du code), sous-arbre d'un préfixe dans
+ * l'ordre des codes. Tenu à jour par le thread écrivain du plan; les lectures ne prennent aucun verrou.
+ */
+public class AccountTrie implements DatasetListener<AccountItem> {
+    private static final AccountItem[] NONE = new AccountItem[0];
+
+    private volatile Node root = new Node();
+
+    @Override
+    public void reset(CowList<AccountItem> items) {
+        Node r = new Node();
+        for (AccountItem it : items) insert(r, it);
+        root = r;
+    }
+
+    @Override
+    public void added(long ord, AccountItem it) { insert(root, it); }
+
+    @Override
+    public void removed(long ord, AccountItem it) {
+        if (it.getCode() == null) return;
+        String code = it.getCode();
+        Node[] path = new Node[code.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < code.length(); i++) if ((path[i + 1] = path[i].children.get(code.charAt(i))) == null) return;
+        Node n = path[code.length()];
+        AccountItem[] cur = n.items;
+        for (int i = 0; i < cur.length; i++) if (cur[i] == it) {
+            AccountItem[] next = new AccountItem[cur.length - 1];
+            System.arraycopy(cur, 0, next, 0, i); System.arraycopy(cur, i + 1, next, i, next.length - i);
+            n.items = next.length == 0 ? NONE : next;
+            break;
+        }
+        // Élagage des nœuds devenus vides
+        for (int i = code.length(); i > 0 && path[i].items.length == 0 && path[i].children.isEmpty(); i--) path[i - 1].children.remove(code.charAt(i - 1));
+    }
+
+    private static void insert(Node r, AccountItem it) {
+        if (it.getCode() == null || it.getCode().isEmpty()) return;
+        Node n = r;
+        for (int i = 0; i < it.getCode().length(); i++) n = n.children.computeIfAbsent(it.getCode().charAt(i), c -> new Node());
+        AccountItem[] cur = n.items;
+        AccountItem[] next = Arrays.copyOf(cur, cur.length + 1);
+        next[cur.length] = it;
+        n.items = next;
+    }
+
+    /** Compte de code exactement égal; null s'il n'existe pas. */
+    public AccountItem get(String code) {
+        Node n = node(code);
+        return n == null || n.items.length == 0 ? null : n.items[0];
+    }
+
+    public boolean contains(String code) { return get(code) != null; }
+
+    public boolean isEmpty() { return root.children.isEmpty(); }
+
+    /** Compte du plan le plus long préfixe de compte (compte lui-même compris), d'au moins minLength caractères; null si aucun. */
+    public AccountItem nearest(String compte, int minLength) { return deepest(compte, compte.length(), minLength); }
+
+    /** Compte parent le plus proche: plus long préfixe strict de code présent dans le plan; null si aucun. */
+    public AccountItem parent(String code) { return deepest(code, code.length() - 1, 1); }
+
+    private AccountItem deepest(String code, int maxLength, int minLength) {
+        Node n = root;
+        AccountItem best = null;
+        for (int i = 0; i < maxLength; i++) {
+            n = n.children.get(code.charAt(i));
+            if (n == null) break;
+            if (i + 1 >= minLength && n.items.length > 0) best = n.items[0];
+        }
+        return best;
+    }
+
+    /**
+     * Comptes commençant par prefix, en arbre: chaque compte a pour enfants les comptes dont il est le plus
+     * proche parent. Un seul nœud racine si prefix est lui-même un compte.
+     */
+    public List<Tree> subtree(String prefix) {
+        Node n = node(prefix);
+        List<Tree> roots = new ArrayList<>();
+        if (n == null) return roots;
+        if (n.items.length > 0) { Tree t = new Tree(n.items[0]); roots.add(t); collect(n, t.children); }
+        else collect(n, roots);
+        return roots;
+    }
+
+    private static void collect(Node n, List<Tree> into) {
+        for (Node c : n.children.values()) {
+            if (c.items.length > 0) { Tree t = new Tree(c.items[0]); into.add(t); collect(c, t.children); }
+            else collect(c, into);
+        }
+    }
+
+    private Node node(String code) {
+        Node n = root;
+        for (int i = 0; i < code.length() && n != null; i++) n = n.children.get(code.charAt(i));
+        return n;
+    }
+
+    private static final class Node {
+        final ConcurrentSkipListMap<Character, Node> children = new ConcurrentSkipListMap<>();
+        volatile AccountItem[] items = NONE;   // plusieurs seulement si le plan contient des doublons
+    }
+
+    public static class Tree {
+        @JsonUnwrapped private final AccountItem account;
+        private final List<Tree> children = new ArrayList<>();
+
+        Tree(AccountItem account) { this.account = account; }
+
+        // Getters
+        public AccountItem getAccount() { return account; }
+        public List<Tree> getChildren() { return children; }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DatasetListener;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * Mouvements des comptes de banque (préfixes donnés, 512 par défaut) triés par (montant signé, date, ordinal,
+ * rang de ligne), un ensemble par compte. Les mouvements d'un montant à quelques jours près d'une date se lisent
+ * par saut dans l'index: une recherche par montant distinct de la fourchette, sans parcourir les autres dates.
+ * Tenu à jour par le thread écrivain des écritures; les lectures ne prennent aucun verrou.
+ */
+public class BankIndex implements DatasetListener<Ecriture> {
+    private static final Comparator<Mov> ORDER = (a, b) -> {
+        int c = Long.compare(a.amount, b.amount);
+        if (c == 0) c = Long.compare(a.day, b.day);
+        if (c == 0) c = Long.compare(a.ord, b.ord);
+        return c != 0 ? c : Integer.compare(a.idx, b.idx);
+    };
+
+    private final String[] prefixes;
+    private final Map<String, ConcurrentSkipListSet<Mov>> accounts = new ConcurrentHashMap<>();
+
+    public BankIndex(String... prefixes) { this.prefixes = prefixes; }
+
+    @Override
+    public void reset(CowList<Ecriture> items) {
+        accounts.clear();
+        for (int i = 0; i < items.size(); i++) added(items.ordinal(i), items.get(i));
+    }
+
+    @Override
+    public void added(long ord, Ecriture e) {
+        forEach(ord, e, m -> accounts.computeIfAbsent(m.ligne.getCompte(), k -> new ConcurrentSkipListSet<>(ORDER)).add(m));
+    }
+
+    @Override
+    public void removed(long ord, Ecriture e) {
+        forEach(ord, e, m -> { Set<Mov> s = accounts.get(m.ligne.getCompte()); if (s != null) s.remove(m); });
+    }
+
+    private void forEach(long ord, Ecriture e, Consumer<Mov> fn) {
+        if (e.getLignes() == null) return;
+        long day = epochDay(e.getDate());
+        if (day == Long.MIN_VALUE) return;
+        for (int i = 0; i < e.getLignes().size(); i++) {
+            Ligne l = e.getLignes().get(i);
+            if (!bank(l.getCompte()) || l.getDebit() == l.getCredit()) continue;
+            fn.accept(new Mov(l.getDebit() - l.getCredit(), day, ord, i, e, l));
+        }
+    }
+
+    public boolean bank(String compte) {
+        if (compte == null) return false;
+        for (String p : prefixes) if (compte.startsWith(p)) return true;
+        return false;
+    }
+
+    /**
+     * Mouvements des comptes commençant par compte, de montant dans [amount - tolerance, amount + tolerance]
+     * et datés à days jours au plus de day (jour epoch), par montant puis date croissants.
+     */
+    public void scan(String compte, long amount, long tolerance, long day, int days, Consumer<Mov> fn) {
+        long lo = day - days, hi = day + days;
+        for (Map.Entry<String, ConcurrentSkipListSet<Mov>> a : accounts.entrySet()) {
+            if (!a.getKey().startsWith(compte)) continue;
+            ConcurrentSkipListSet<Mov> s = a.getValue();
+            Mov from = probe(amount - tolerance, lo);
+            // Parcours dans l'ordre à partir de from; hors des dates, saut au montant suivant (nouvelle recherche)
+            seek:
+            while (true) {
+                for (Mov m : s.tailSet(from, true)) {
+                    if (m.amount > amount + tolerance) break seek;
+                    if (m.day < lo) { from = probe(m.amount, lo); continue seek; }
+                    if (m.day > hi) {
+                        if (m.amount == Long.MAX_VALUE) break seek;
+                        from = probe(m.amount + 1, lo); continue seek;
+                    }
+                    fn.accept(m);
+                }
+                break;
+            }
+        }
+    }
+
+    /** Mouvements des comptes commençant par compte datés de from à to (jours epoch) inclus. */
+    public void between(String compte, long from, long to, Consumer<Mov> fn) {
+        for (Map.Entry<String, ConcurrentSkipListSet<Mov>> a : accounts.entrySet()) {
+            if (!a.getKey().startsWith(compte)) continue;
+            for (Mov m : a.getValue()) if (m.day >= from && m.day <= to) fn.accept(m);
+        }
+    }
+
+    private static Mov probe(long amount, long day) { return new Mov(amount, day, Long.MIN_VALUE, Integer.MIN_VALUE, null, null); }
+
+    /** Jour epoch d'une date ISO ou jj/mm/aaaa (relevés); Long.MIN_VALUE si elle est absente ou invalide. */
+    public static long epochDay(String date) {
+        if (date == null || date.length() < 10) return Long.MIN_VALUE;
+        String d = date.charAt(2) == '/' ? date.substring(6, 10) + "-" + date.substring(3, 5) + "-" + date.substring(0, 2) : date.substring(0, 10);
+        try { return LocalDate.parse(d).toEpochDay(); }
+        catch (DateTimeParseException e) { return Long.MIN_VALUE; }
+    }
+
+    public static final class Mov {
+        public final long amount;   // débit - crédit: positif = encaissement
+        public final long day;
+        public final long ord;
+        public final int idx;
+        public final Ecriture ecriture;
+        public final Ligne ligne;
+
+        Mov(long amount, long day, long ord, int idx, Ecriture ecriture, Ligne ligne) {
+            this.amount = amount; this.day = day; this.ord = ord; this.idx = idx; this.ecriture = ecriture; this.ligne = ligne;
+        }
+
+        /** Référence de la ligne: "ecritureId#indexLigne". */
+        public String ref() { return ecriture.getId() + "#" + idx; }
+    }
+}
@@ -0,0 +1,85 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.model.Cloture;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DatasetListener;
+
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Périodes closes d'un dossier, par dernier mois clos. Les clôtures se suivent sans trou: tout mois jusqu'à
+ * closedUntil() est figé. Une clôture d'exercice ouvre le suivant: les requêtes sans date de début partent du
+ * mois qui la suit (les à-nouveaux y reportent les soldes). Tenu par le thread écrivain des clôtures.
+ */
+public class ClosingIndex implements DatasetListener<Cloture> {
+    public static final String EXERCICE = "EXERCICE";
+    public static final String MOIS = "MOIS";
+
+    private final ConcurrentSkipListMap<String, Cloture> byEnd = new ConcurrentSkipListMap<>();
+    private final AtomicReference<Cloture> pending = new AtomicReference<>(); // clôture validée, pas encore enregistrée
+
+    @Override
+    public void reset(CowList<Cloture> items) {
+        byEnd.clear();
+        for (Cloture c : items) added(0, c);
+    }
+
+    @Override
+    public void added(long ord, Cloture c) { if (c.getAu() != null) byEnd.put(c.getAu(), c); }
+
+    @Override
+    public void removed(long ord, Cloture c) { if (c.getAu() != null) byEnd.remove(c.getAu(), c); }
+
+    /** Dernier mois clos (yyyy-MM), null si aucun; une clôture en cours d'enregistrement compte déjà. */
+    public String closedUntil() {
+        Map.Entry<String, Cloture> e = byEnd.lastEntry();
+        Cloture p = pending.get();
+        String u = e == null ? null : e.getKey();
+        return p != null && (u == null || p.getAu().compareTo(u) > 0) ? p.getAu() : u;
+    }
+
+    /**
+     * Fige les mois jusqu'à c.au entre la validation des écritures de la clôture (à-nouveaux) et l'enregistrement
+     * de la clôture elle-même. Appelé dans la transaction des écritures; faux si une autre clôture est en cours.
+     */
+    public boolean freeze(Cloture c) { return pending.compareAndSet(null, c); }
+
+    /** Lève le gel posé par c (clôture enregistrée ou abandonnée). */
+    public void unfreeze(Cloture c) { pending.compareAndSet(c, null); }
+
+    /** Vrai si la date tombe dans une période close (figée). */
+    public boolean closed(String date) {
+        String u = closedUntil();
+        return u != null && date != null && date.length() >= 7 && date.substring(0, 7).compareTo(u) <= 0;
+    }
+
+    /** Premier mois de l'exercice contenant month (null = exercice ouvert); null si aucun exercice clos avant. */
+    public String exerciceStart(String month) {
+        NavigableMap<String, Cloture> before = month == null ? byEnd : byEnd.headMap(month, false);
+        for (Cloture c : before.descendingMap().values()) if (EXERCICE.equals(c.getType())) return next(c.getAu());
+        return null;
+    }
+
+    /** Clôtures entièrement comprises entre les mois from et to inclus (null = ouvert), dans l'ordre. */
+    public List<Cloture> within(String from, String to) {
+        NavigableMap<String, Cloture> m = byEnd;
+        if (to != null) m = m.headMap(to, true);
+        if (from != null) m = m.tailMap(from, true);
+        List<Cloture> out = new ArrayList<>(m.size());
+        for (Cloture c : m.values()) if (c.getDu() != null && (from == null || c.getDu().compareTo(from) >= 0)) out.add(c);
+        return out;
+    }
+
+    /** Mois suivant (yyyy-MM). */
+    public static String next(String month) { return YearMonth.parse(month).plusMonths(1).toString(); }
+
+    /** Ajout ou suppression refusé: l'écriture est datée dans une période close. */
+    public static class Closed extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public Closed(String until) { super("period closed until " + until); }
+    }
+}
@@ -0,0 +1,145 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DatasetListener;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Comptes et journaux appris des écritures passées, par tiers: chaque écriture portant un tiersId ou un
+ * tiersName compte une fois pour chacun de ses comptes et pour son journal, ce dernier aussi par classe des
+ * comptes mouvementés (le journal des achats d'un tiers qui est aussi client reste distinct). Les noms sont normalisés
+ * (minuscules, sans accents ni ponctuation) pour retrouver le tiers à partir du nom lu sur un document.
+ * Tenu à jour par le thread écrivain; une consultation ne lit que les compteurs d'un tiers.
+ */
+public class CounterpartyIndex implements DatasetListener<Ecriture> {
+    private final Map<String, Stats> byKey = new ConcurrentHashMap<>();
+
+    @Override
+    public void reset(CowList<Ecriture> items) {
+        byKey.clear();
+        for (int i = 0; i < items.size(); i++) added(items.ordinal(i), items.get(i));
+    }
+
+    @Override
+    public void added(long ord, Ecriture e) { apply(e, 1); }
+
+    @Override
+    public void removed(long ord, Ecriture e) { apply(e, -1); }
+
+    private void apply(Ecriture e, int delta) {
+        if (e.getLignes() == null) return;
+        Set<String> keys = new HashSet<>(), comptes = new HashSet<>(), classes = new HashSet<>();
+        for (Ligne l : e.getLignes()) {
+            if (l.getTiersId() != null && !l.getTiersId().isBlank()) keys.add(idKey(l.getTiersId()));
+            String name = normalize(l.getTiersName());
+            if (!name.isEmpty()) keys.add(nameKey(name));
+            if (l.getCompte() != null && !l.getCompte().isEmpty()) { comptes.add(l.getCompte()); classes.add(l.getCompte().substring(0, 1)); }
+        }
+        if (keys.isEmpty()) return;
+        String journal = e.getJournalCode() == null ? null : e.getJournalCode().toUpperCase(Locale.ROOT);
+        for (String k : keys) {
+            Stats s = byKey.computeIfAbsent(k, x -> new Stats());
+            s.entries += delta;
+            for (String c : comptes) count(s.comptes, c, delta);
+            if (journal != null) {
+                count(s.journaux, journal, delta);
+                for (String c : classes) count(s.journauxParClasse, c + ":" + journal, delta);
+            }
+            if (s.entries <= 0) byKey.remove(k);
+        }
+    }
+
+    private static void count(Map<String, Integer> m, String k, int delta) {
+        m.merge(k, delta, (a, b) -> a + b > 0 ? a + b : null);
+    }
+
+    /** Historique d'un tiers par identifiant; null si inconnu. */
+    public Learned byId(String tiersId) { return tiersId == null ? null : learned(byKey.get(idKey(tiersId))); }
+
+    /** Historique d'un tiers par nom (normalisé avant recherche); null si inconnu. */
+    public Learned byName(String name) {
+        String n = normalize(name);
+        return n.isEmpty() ? null : learned(byKey.get(nameKey(n)));
+    }
+
+    private static Learned learned(Stats s) { return s == null ? null : new Learned(s); }
+
+    /** Nom de tiers comparable: minuscules, accents, points et apostrophes retirés, autres séparateurs réduits à un espace. */
+    public static String normalize(String name) {
+        if (name == null) return "";
+        String s = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean space = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK || c == '.' || c == '\'') continue;   // "S.A." = "SA"
+            if (Character.isLetterOrDigit(c)) {
+                if (space && sb.length() > 0) sb.append(' ');
+                sb.append(Character.toLowerCase(c)); space = false;
+            } else space = true;
+        }
+        return sb.toString();
+    }
+
+    private static String idKey(String tiersId) { return "id:" + tiersId.trim(); }
+    private static String nameKey(String normalized) { return "name:" + normalized; }
+
+    // Compteurs d'un tiers; écrits par le seul thread écrivain
+    private static final class Stats {
+        volatile int entries;
+        final Map<String, Integer> comptes = new ConcurrentHashMap<>();
+        final Map<String, Integer> journaux = new ConcurrentHashMap<>();
+        final Map<String, Integer> journauxParClasse = new ConcurrentHashMap<>();   // "6:ACH" → écritures
+    }
+
+    /** Vue d'un tiers: nombre d'écritures, fréquence de chaque compte et de chaque journal. */
+    public static class Learned {
+        private final int entries;
+        private final Map<String, Integer> comptes;
+        private final Map<String, Integer> journaux;
+        private final Map<String, Integer> journauxParClasse;
+
+        Learned(Stats s) { this.entries = s.entries; this.comptes = s.comptes; this.journaux = s.journaux; this.journauxParClasse = s.journauxParClasse; }
+
+        /** Compte le plus utilisé commençant par l'un des préfixes (à égalité, le plus petit); null si aucun. */
+        public String topCompte(String... prefixes) {
+            String best = null; int n = 0;
+            for (Map.Entry<String, Integer> e : comptes.entrySet()) {
+                if (!startsWithAny(e.getKey(), prefixes)) continue;
+                int c = e.getValue();
+                if (c > n || (c == n && e.getKey().compareTo(best) < 0)) { best = e.getKey(); n = c; }
+            }
+            return best;
+        }
+
+        /** Journal le plus utilisé pour les écritures mouvementant l'une des classes ("6", "7"...); null si aucun. */
+        public String topJournal(String... classes) {
+            Map<String, Integer> n = new HashMap<>();
+            for (Map.Entry<String, Integer> e : journauxParClasse.entrySet()) {
+                String k = e.getKey();
+                for (String c : classes) if (k.length() > c.length() && k.startsWith(c) && k.charAt(c.length()) == ':') n.merge(k.substring(c.length() + 1), e.getValue(), Integer::sum);
+            }
+            String best = null; int max = 0;
+            for (Map.Entry<String, Integer> e : n.entrySet()) {
+                int c = e.getValue();
+                if (c > max || (c == max && e.getKey().compareTo(best) < 0)) { best = e.getKey(); max = c; }
+            }
+            return best;
+        }
+
+        private static boolean startsWithAny(String s, String[] prefixes) {
+            for (String p : prefixes) if (s.startsWith(p)) return true;
+            return false;
+        }
+
+        // Getters
+        public int getEntries() { return entries; }
+        public Map<String, Integer> getComptes() { return new TreeMap<>(comptes); }
+        public Map<String, Integer> getJournaux() { return new TreeMap<>(journaux); }
+    }
+}
@@ -0,0 +1,306 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+import com.ecomptaia.model.Money;
+import com.ecomptaia.store.ColumnArchive;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DatasetListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grand livre par compte: pour chaque compte et chacun de ses préfixes d'au moins 3 caractères
+ * (401 regroupe 4011, 401100...), les lignes triées par (date, ordinal d'écriture, rang de ligne).
+ * L'écrivain se contente d'empiler les ajouts; le tri / fusion est fait à la lecture suivante.
+ * Un solde cumulé est mémorisé toutes les checkpointEvery lignes: une page démarre du point de
+ * contrôle précédent au lieu de tout resommer. Une insertion ou suppression n'invalide que les
+ * points de contrôle situés après sa position. Les soldes partent du début de l'exercice de la première date
+ * demandée (après la clôture d'exercice précédente), dont les à-nouveaux portent le solde antérieur; sans date de
+ * début, une page part de l'exercice en cours. Les lignes des exercices archivés précèdent toutes les lignes vivantes:
+ * une page les lit d'abord dans les colonnes des archives, puis enchaîne sur les comptes en mémoire.
+ */
+public class GeneralLedger implements DatasetListener<Ecriture> {
+    static final int MIN_PREFIX = 3;
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final int checkpointEvery;
+    private final ClosingIndex closures;
+    private final LedgerArchives archives;
+
+    public GeneralLedger(int checkpointEvery, ClosingIndex closures, LedgerArchives archives) {
+        this.checkpointEvery = Math.max(1, checkpointEvery); this.closures = closures; this.archives = archives;
+    }
+
+    @Override
+    public void reset(CowList<Ecriture> items) {
+        accounts.clear();
+        for (int i = 0; i < items.size(); i++) added(items.ordinal(i), items.get(i));
+    }
+
+    @Override
+    public void added(long ord, Ecriture e) {
+        if (e.getLignes() == null) return;
+        for (int i = 0; i < e.getLignes().size(); i++) {
+            Ligne l = e.getLignes().get(i);
+            if (l.getCompte() == null) continue;
+            Line line = new Line(ord, i, e, l);
+            for (String k : keys(l.getCompte())) accounts.computeIfAbsent(k, x -> new Account(checkpointEvery)).add(line);
+        }
+    }
+
+    @Override
+    public void removed(long ord, Ecriture e) { remove(ord, e, false); }
+
+    // Même ordinal: l'ancienne version part tout de suite, le retrait différé emporterait sinon la nouvelle
+    @Override
+    public void replaced(long ord, Ecriture old, Ecriture e) {
+        remove(ord, old, true);
+        added(ord, e);
+    }
+
+    private void remove(long ord, Ecriture e, boolean now) {
+        if (e.getLignes() == null) return;
+        Set<String> done = new HashSet<>();
+        for (Ligne l : e.getLignes()) {
+            if (l.getCompte() == null) continue;
+            for (String k : keys(l.getCompte())) if (done.add(k)) { Account a = accounts.get(k); if (a != null) a.remove(ord, now); }
+        }
+    }
+
+    /**
+     * Page (numérotée à partir de 0) des mouvements du compte (ou préfixe) entre from et to inclus;
+     * soldeInitial est le solde des lignes antérieures à la page, depuis le début de l'exercice.
+     */
+    public Page page(String compte, String from, String to, int page, int size) {
+        String first = from != null ? from : to;
+        String origin = closures.exerciceStart(first == null ? null : TrialBalance.month(first));
+        if (from == null) from = origin;
+        boolean prefix = compte.length() >= MIN_PREFIX;
+        long skip = (long) page * size;
+        long total = 0;
+        long solde = 0;        // solde cumulé avant la prochaine ligne
+        List<Row> rows = new ArrayList<>();
+        for (ColumnArchive a : archives.all()) {
+            solde += a.cursor(compte, prefix, a.lowerBound(origin), a.lowerBound(from)).sum();
+            ColumnArchive.Cursor c = a.cursor(compte, prefix, a.lowerBound(from), a.upperBound(to));
+            total += c.count();
+            if (skip >= c.count() || rows.size() >= size) {
+                long n = Math.min(skip, c.count());
+                skip -= n;
+                if (rows.isEmpty()) solde += c.sum(); // les lignes vivantes repartent de la fin des lignes archivées
+                continue;
+            }
+            for (; skip > 0 && c.next(); skip--) solde += c.amount();
+            while (rows.size() < size && c.next()) { solde += c.amount(); rows.add(new Row(c, solde)); }
+        }
+        Account a = accounts.get(compte);
+        long initial;
+        if (a != null) {
+            Page live = a.page(compte, origin, from, to, skip, size - rows.size(), solde);
+            total += live.total;
+            initial = rows.isEmpty() ? live.soldeInitial : rows.get(0).solde - rows.get(0).debit + rows.get(0).credit;
+            rows.addAll(live.items);
+        } else {
+            initial = rows.isEmpty() ? solde : rows.get(0).solde - rows.get(0).debit + rows.get(0).credit;
+        }
+        int t = (int) Math.min(total, Integer.MAX_VALUE);
+        return new Page(compte, t, page, size, (int) ((total + size - 1) / size), rows, initial);
+    }
+
+    private static List<String> keys(String compte) {
+        if (compte.length() <= MIN_PREFIX) return List.of(compte);
+        List<String> out = new ArrayList<>(compte.length() - MIN_PREFIX + 1);
+        for (int n = MIN_PREFIX; n <= compte.length(); n++) out.add(compte.substring(0, n));
+        return out;
+    }
+
+    static final class Line implements Comparable<Line> {
+        final String date;
+        final long ord;
+        final int idx;
+        final Ecriture ecriture;
+        final Ligne ligne;
+
+        Line(long ord, int idx, Ecriture ecriture, Ligne ligne) {
+            this.date = ecriture.getDate() == null ? "" : ecriture.getDate();
+            this.ord = ord; this.idx = idx; this.ecriture = ecriture; this.ligne = ligne;
+        }
+
+        long amount() { return ligne.getDebit() - ligne.getCredit(); }
+
+        public int compareTo(Line o) {
+            int c = date.compareTo(o.date);
+            if (c != 0) return c;
+            c = Long.compare(ord, o.ord);
+            return c != 0 ? c : Integer.compare(idx, o.idx);
+        }
+    }
+
+    // Lignes d'un compte; écrivain et lecteurs se synchronisent sur l'instance
+    private static final class Account {
+        private final int every;
+        private ArrayList<Line> sorted = new ArrayList<>();
+        private final ArrayList<Line> pending = new ArrayList<>();
+        private final Set<Long> removed = new HashSet<>();
+        private long[] checkpoints = new long[1];       // checkpoints[k] = solde (centimes) des k*every premières lignes
+        private int valid = 1;                          // nombre de points de contrôle à jour
+
+        Account(int every) { this.every = every; }
+
+        synchronized void add(Line l) { pending.add(l); }
+
+        // Appliquée à la lecture suivante, comme les ajouts: un retrait en masse reste linéaire
+        synchronized void remove(long ord, boolean now) {
+            removed.add(ord);
+            if (now) sync();
+        }
+
+        // Lignes [skip, skip + size) de la plage; base = solde des lignes archivées qui précèdent
+        synchronized Page page(String compte, String origin, String from, String to, long skip, int size, long base) {
+            sync();
+            int lo = from == null ? 0 : lowerBound(from);
+            int hi = to == null ? sorted.size() : lowerBound(to + Character.MAX_VALUE);
+            int total = Math.max(0, hi - lo);
+            int start = (int) Math.min(lo + skip, hi);
+            int end = Math.min(start + size, hi);
+            long solde = base + balanceAt(start) - (origin == null ? 0 : balanceAt(lowerBound(origin)));
+            long initial = solde;
+            List<Row> rows = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                Line l = sorted.get(i);
+                solde += l.amount();
+                rows.add(new Row(l, solde));
+            }
+            return new Page(compte, total, 0, size, 0, rows, initial);
+        }
+
+        // Applique suppressions et ajouts en attente, invalide les points de contrôle après la première position touchée
+        private void sync() {
+            int first = Integer.MAX_VALUE;
+            if (!removed.isEmpty()) {
+                pending.removeIf(l -> removed.contains(l.ord));
+                ArrayList<Line> kept = new ArrayList<>(sorted.size());
+                for (int i = 0; i < sorted.size(); i++) {
+                    Line l = sorted.get(i);
+                    if (removed.contains(l.ord)) first = Math.min(first, i); else kept.add(l);
+                }
+                sorted = kept; removed.clear();
+            }
+            if (!pending.isEmpty()) {
+                pending.sort(null);
+                Line min = pending.get(0);
+                if (sorted.isEmpty() || sorted.get(sorted.size() - 1).compareTo(min) < 0) {
+                    first = Math.min(first, sorted.size());
+                    sorted.addAll(pending);
+                } else {
+                    first = Math.min(first, insertionPoint(min));
+                    ArrayList<Line> merged = new ArrayList<>(sorted.size() + pending.size());
+                    int i = 0, j = 0;
+                    while (i < sorted.size() && j < pending.size()) merged.add(sorted.get(i).compareTo(pending.get(j)) <= 0 ? sorted.get(i++) : pending.get(j++));
+                    while (i < sorted.size()) merged.add(sorted.get(i++));
+                    while (j < pending.size()) merged.add(pending.get(j++));
+                    sorted = merged;
+                }
+                pending.clear();
+            }
+            if (first != Integer.MAX_VALUE) valid = Math.min(valid, first / every + 1);
+        }
+
+        // Solde des pos premières lignes, à partir du dernier point de contrôle utile (prolongés au passage)
+        private long balanceAt(int pos) {
+            int k = pos / every;
+            if (k >= valid) {
+                if (checkpoints.length <= k) checkpoints = Arrays.copyOf(checkpoints, Math.max(k + 1, checkpoints.length * 2));
+                for (int c = valid; c <= k; c++) {
+                    long s = checkpoints[c - 1];
+                    for (int i = (c - 1) * every; i < c * every; i++) s += sorted.get(i).amount();
+                    checkpoints[c] = s;
+                }
+                valid = k + 1;
+            }
+            long s = checkpoints[k];
+            for (int i = k * every; i < pos; i++) s += sorted.get(i).amount();
+            return s;
+        }
+
+        private int lowerBound(String date) {
+            int lo = 0, hi = sorted.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sorted.get(mid).date.compareTo(date) < 0) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        private int insertionPoint(Line l) {
+            int i = Collections.binarySearch(sorted, l);
+            return i < 0 ? -i - 1 : i;
+        }
+    }
+
+    public static class Row {
+        private final String date;
+        private final String journalCode;
+        private final String piece;
+        private final String ecritureId;
+        private final String compte;
+        private final String libelle;
+        @Money.Amount private final long debit;
+        @Money.Amount private final long credit;
+        @Money.Amount private final long solde;
+
+        Row(Line l, long solde) {
+            this.date = l.ecriture.getDate(); this.journalCode = l.ecriture.getJournalCode();
+            this.piece = l.ecriture.getPiece(); this.ecritureId = l.ecriture.getId();
+            this.compte = l.ligne.getCompte(); this.libelle = l.ligne.getLibelle();
+            this.debit = l.ligne.getDebit(); this.credit = l.ligne.getCredit();
+            this.solde = solde;
+        }
+
+        Row(ColumnArchive.Cursor c, long solde) {
+            this.date = c.date(); this.journalCode = c.journalCode();
+            this.piece = c.piece(); this.ecritureId = c.ecritureId();
+            this.compte = c.compte(); this.libelle = c.libelle();
+            this.debit = c.debit(); this.credit = c.credit();
+            this.solde = solde;
+        }
+
+        // Getters
+        public String getDate() { return date; }
+        public String getJournalCode() { return journalCode; }
+        public String getPiece() { return piece; }
+        public String getEcritureId() { return ecritureId; }
+        public String getCompte() { return compte; }
+        public String getLibelle() { return libelle; }
+        public long getDebit() { return debit; }
+        public long getCredit() { return credit; }
+        public long getSolde() { return solde; }
+    }
+
+    public static class Page {
+        private final String compte;
+        private final int total;
+        private final int page;
+        private final int size;
+        private final int pages;
+        private final List<Row> items;
+        @Money.Amount private final long soldeInitial;
+
+        Page(String compte, int total, int page, int size, int pages, List<Row> items, long soldeInitial) {
+            this.compte = compte; this.total = total; this.page = page; this.size = size; this.pages = pages;
+            this.items = items; this.soldeInitial = soldeInitial;
+        }
+
+        // Getters
+        public String getCompte() { return compte; }
+        public int getTotal() { return total; }
+        public int getPage() { return page; }
+        public int getSize() { return size; }
+        public int getPages() { return pages; }
+        public List<Row> getItems() { return items; }
+        public long getSoldeInitial() { return soldeInitial; }
+        @Money.Amount public long getSoldeFinal() { return items.isEmpty() ? soldeInitial : items.get(items.size() - 1).getSolde(); }
+    }
+}
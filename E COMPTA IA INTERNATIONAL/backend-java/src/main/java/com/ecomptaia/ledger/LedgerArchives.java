@@ -0,0 +1,80 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.store.ColumnArchive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Exercices archivés d'un dossier (archives/du_au.col), dans l'ordre chronologique. Leurs écritures ne sont plus
+ * dans le jeu de données: balance et grand livre lisent ces mois dans les colonnes projetées en mémoire.
+ */
+public class LedgerArchives {
+    private static final Logger log = LoggerFactory.getLogger(LedgerArchives.class);
+
+    private final File dir;
+    private final List<ColumnArchive> archives = new CopyOnWriteArrayList<>();
+
+    public LedgerArchives(File dir) { this.dir = dir; }
+
+    /** Ouvre les archives présentes. */
+    public synchronized void load() throws IOException {
+        File[] files = dir.listFiles((d, n) -> n.endsWith(".col"));
+        if (files == null) return;
+        List<ColumnArchive> found = new ArrayList<>();
+        for (File f : files) found.add(ColumnArchive.open(f));
+        found.sort(Comparator.comparing(ColumnArchive::du));
+        archives.addAll(found);
+    }
+
+    /** Fichier de l'archive des mois du..au. */
+    public File file(String du, String au) {
+        dir.mkdirs();
+        return new File(dir, du + "_" + au + ".col");
+    }
+
+    public synchronized void add(ColumnArchive a) {
+        int i = 0;
+        while (i < archives.size() && archives.get(i).du().compareTo(a.du()) < 0) i++;
+        archives.add(i, a);
+    }
+
+    /** Retire une archive dont le retrait des écritures n'a pas été validé. */
+    public synchronized void remove(ColumnArchive a) { archives.remove(a); }
+
+    public List<ColumnArchive> all() { return archives; }
+
+    public boolean isEmpty() { return archives.isEmpty(); }
+
+    /** Vrai si la date tombe dans un exercice archivé. */
+    public boolean covers(String date) {
+        for (ColumnArchive a : archives) if (a.covers(date)) return true;
+        return false;
+    }
+
+    /** Vrai si l'écriture id est archivée. */
+    public boolean contains(String id) {
+        if (id == null) return false;
+        for (ColumnArchive a : archives) if (a.contains(id)) return true;
+        return false;
+    }
+
+    /** Cumuls par compte des lignes archivées entre les mois from inclus et to exclu (null = ouvert). */
+    void totals(String from, String to, ColumnArchive.TotalsConsumer out) {
+        for (ColumnArchive a : archives) {
+            if ((from != null && a.au().compareTo(from) < 0) || (to != null && a.du().compareTo(to) >= 0)) continue;
+            a.totals(a.lowerBound(from), to == null ? a.upperBound(null) : a.lowerBound(to), out);
+        }
+    }
+
+    public void close() {
+        for (ColumnArchive a : archives) {
+            try { a.close(); } catch (IOException e) { log.warn("Cannot close archive {}", a.file(), e); }
+        }
+        archives.clear();
+    }
+}
@@ -0,0 +1,111 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DatasetListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index secondaires du grand livre, maintenus par le thread écrivain du Dataset des écritures:
+ * journal → écritures, date (triée, pour les plages) → écritures, compte → écritures portant une
+ * ligne sur ce compte (triés, pour les préfixes), tiersId → écritures.
+ * Chaque liste de postings est ordonnée par ordinal d'insertion, comme la vue, ce qui permet de
+ * reprendre une pagination par curseur directement dans l'index.
+ */
+public class LedgerIndex implements DatasetListener<Ecriture> {
+    private final Map<String, Posting> byJournal = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Posting> byDate = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Posting> byCompte = new ConcurrentSkipListMap<>();
+    private final Map<String, Posting> byTiers = new ConcurrentHashMap<>();
+
+    @Override
+    public void reset(CowList<Ecriture> items) {
+        byJournal.clear(); byDate.clear(); byCompte.clear(); byTiers.clear();
+        for (int i = 0; i < items.size(); i++) added(items.ordinal(i), items.get(i));
+    }
+
+    @Override
+    public void added(long ord, Ecriture e) {
+        if (e.getJournalCode() != null) byJournal.computeIfAbsent(e.getJournalCode().toUpperCase(Locale.ROOT), k -> new Posting()).put(ord, e);
+        if (e.getDate() != null) byDate.computeIfAbsent(e.getDate(), k -> new Posting()).put(ord, e);
+        if (e.getLignes() != null) for (Ligne l : e.getLignes()) {
+            if (l.getCompte() != null) byCompte.computeIfAbsent(l.getCompte(), k -> new Posting()).put(ord, e);
+            if (l.getTiersId() != null) byTiers.computeIfAbsent(l.getTiersId(), k -> new Posting()).put(ord, e);
+        }
+    }
+
+    @Override
+    public void removed(long ord, Ecriture e) {
+        if (e.getJournalCode() != null) remove(byJournal, e.getJournalCode().toUpperCase(Locale.ROOT), ord);
+        if (e.getDate() != null) remove(byDate, e.getDate(), ord);
+        if (e.getLignes() != null) for (Ligne l : e.getLignes()) {
+            if (l.getCompte() != null) remove(byCompte, l.getCompte(), ord);
+            if (l.getTiersId() != null) remove(byTiers, l.getTiersId(), ord);
+        }
+    }
+
+    public Collection<Posting> journal(String code) { return single(byJournal.get(code.toUpperCase(Locale.ROOT))); }
+    public Collection<Posting> tiers(String tiersId) { return single(byTiers.get(tiersId)); }
+
+    /** Postings des comptes commençant par prefix (un par compte détaillé). */
+    public Collection<Posting> comptePrefix(String prefix) { return byCompte.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values(); }
+
+    /** Postings des dates comprises dans [from, to] (bornes incluses, nulles = ouvertes). */
+    public Collection<Posting> dateRange(String from, String to) {
+        ConcurrentNavigableMap<String, Posting> m = byDate;
+        if (from != null) m = m.tailMap(from, true);
+        if (to != null) m = m.headMap(to, true);
+        return m.values();
+    }
+
+    /** Lignes d'un compte exact, dans l'ordre d'insertion des écritures. */
+    public List<LineRef> lines(String compte) {
+        List<LineRef> out = new ArrayList<>();
+        Posting p = byCompte.get(compte);
+        if (p != null) p.entries.forEach((ord, e) -> { for (Ligne l : e.getLignes()) if (compte.equals(l.getCompte())) out.add(new LineRef(ord, e, l)); });
+        return out;
+    }
+
+    /** Lignes d'un tiers, dans l'ordre d'insertion des écritures. */
+    public List<LineRef> tiersLines(String tiersId) {
+        List<LineRef> out = new ArrayList<>();
+        Posting p = byTiers.get(tiersId);
+        if (p != null) p.entries.forEach((ord, e) -> { for (Ligne l : e.getLignes()) if (tiersId.equals(l.getTiersId())) out.add(new LineRef(ord, e, l)); });
+        return out;
+    }
+
+    public Set<String> comptes() { return Collections.unmodifiableSet(byCompte.keySet()); }
+
+    private static Collection<Posting> single(Posting p) { return p == null ? List.of() : List.of(p); }
+
+    private static void remove(Map<String, Posting> m, String key, long ord) {
+        Posting p = m.get(key);
+        if (p != null && p.remove(ord) && p.size() == 0) m.remove(key);
+    }
+
+    /** Écritures d'une clé d'index, triées par ordinal; size tenu à jour par l'écrivain (O(1)). */
+    public static final class Posting {
+        private final ConcurrentSkipListMap<Long, Ecriture> entries = new ConcurrentSkipListMap<>();
+        private volatile int size;
+
+        void put(long ord, Ecriture e) { if (entries.put(ord, e) == null) size++; }
+        boolean remove(long ord) { if (entries.remove(ord) == null) return false; size--; return true; }
+
+        public int size() { return size; }
+
+        /** Entrées d'ordinal strictement supérieur à after. */
+        public Iterator<Map.Entry<Long, Ecriture>> after(long after) { return entries.tailMap(after, false).entrySet().iterator(); }
+    }
+
+    public static final class LineRef {
+        public final long ord;
+        public final Ecriture ecriture;
+        public final Ligne ligne;
+        LineRef(long ord, Ecriture ecriture, Ligne ligne) { this.ord = ord; this.ecriture = ecriture; this.ligne = ligne; }
+    }
+}
@@ -0,0 +1,164 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+import com.ecomptaia.model.Money;
+import com.ecomptaia.store.CowList;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Filtres serveur sur les écritures (liés depuis les paramètres de requête) et pagination par curseur.
+ * Le curseur est l'ordinal de la dernière écriture renvoyée: il reste valide si des écritures sont
+ * ajoutées ou supprimées entre deux pages.
+ * Les candidats viennent de l'index le plus sélectif (journal, tiers, préfixe de compte, plage de dates);
+ * si aucun filtre indexé ne retient moins d'un quart du grand livre, on parcourt la vue.
+ */
+public class LedgerQuery {
+    private String journal;
+    private String from;     // date incluse, yyyy-MM-dd
+    private String to;       // date incluse, yyyy-MM-dd
+    private String compte;   // préfixe de compte sur au moins une ligne
+    private String tiers;    // tiersId sur au moins une ligne
+    private Double min;      // montant total de l'écriture, en unités
+    private Double max;
+
+    public boolean matches(Ecriture e) {
+        if (journal != null && !journal.equalsIgnoreCase(e.getJournalCode())) return false;
+        String d = e.getDate();
+        if (from != null && (d == null || d.compareTo(from) < 0)) return false;
+        if (to != null && (d == null || d.compareTo(to) > 0)) return false;
+        if (min != null && e.getTotalDebit() < Money.of(min)) return false;
+        if (max != null && e.getTotalDebit() > Money.of(max)) return false;
+        if (compte == null && tiers == null) return true;
+        if (e.getLignes() == null) return false;
+        boolean c = compte == null, t = tiers == null;
+        for (Ligne l : e.getLignes()) {
+            if (!c && l.getCompte() != null && l.getCompte().startsWith(compte)) c = true;
+            if (!t && tiers.equals(l.getTiersId())) t = true;
+        }
+        return c && t;
+    }
+
+    /** Page de résultats après le curseur; nextCursor est null quand la fin du grand livre est atteinte. */
+    public Page page(CowList<Ecriture> view, LedgerIndex index, String cursor, int limit) {
+        List<Ecriture> items = new ArrayList<>(Math.min(limit, 256));
+        long after = cursor == null ? 0 : decodeCursor(cursor);
+        long last = -1;
+        Collection<LedgerIndex.Posting> plan = plan(index, view.size());
+        if (plan != null) {
+            Iterator<Map.Entry<Long, Ecriture>> it = merge(plan, after);
+            while (it.hasNext() && items.size() < limit) {
+                Map.Entry<Long, Ecriture> c = it.next();
+                if (matches(c.getValue())) { items.add(c.getValue()); last = c.getKey(); }
+            }
+            return new Page(items, it.hasNext() && last >= 0 ? encodeCursor(last) : null);
+        }
+        int n = view.size();
+        int i = view.indexAfter(after);
+        for (; i < n && items.size() < limit; i++) {
+            Ecriture e = view.get(i);
+            if (matches(e)) { items.add(e); last = view.ordinal(i); }
+        }
+        return new Page(items, i < n && last >= 0 ? encodeCursor(last) : null);
+    }
+
+    public void forEach(CowList<Ecriture> view, LedgerIndex index, Consumer<Ecriture> sink) {
+        Collection<LedgerIndex.Posting> plan = plan(index, view.size());
+        if (plan == null) { for (Ecriture e : view) if (matches(e)) sink.accept(e); return; }
+        for (Iterator<Map.Entry<Long, Ecriture>> it = merge(plan, 0); it.hasNext(); ) {
+            Ecriture e = it.next().getValue();
+            if (matches(e)) sink.accept(e);
+        }
+    }
+
+    // Choix de l'index le plus sélectif; null = parcours séquentiel plus rentable
+    private Collection<LedgerIndex.Posting> plan(LedgerIndex index, int total) {
+        Collection<LedgerIndex.Posting> best = null;
+        long bestSize = Long.MAX_VALUE;
+        List<Collection<LedgerIndex.Posting>> options = new ArrayList<>(4);
+        if (journal != null) options.add(index.journal(journal));
+        if (tiers != null) options.add(index.tiers(tiers));
+        if (compte != null) options.add(index.comptePrefix(compte));
+        if (from != null || to != null) options.add(index.dateRange(from, to));
+        for (Collection<LedgerIndex.Posting> o : options) {
+            long n = 0;
+            for (LedgerIndex.Posting p : o) { n += p.size(); if (n >= bestSize) break; }
+            if (n < bestSize) { best = o; bestSize = n; }
+        }
+        return best != null && bestSize <= total / 4 ? best : null;
+    }
+
+    // Fusion ordonnée (par ordinal, sans doublon) de plusieurs listes de postings
+    private static Iterator<Map.Entry<Long, Ecriture>> merge(Collection<LedgerIndex.Posting> postings, long after) {
+        if (postings.size() == 1) return postings.iterator().next().after(after);
+        PriorityQueue<Head> heads = new PriorityQueue<>();
+        for (LedgerIndex.Posting p : postings) { Iterator<Map.Entry<Long, Ecriture>> it = p.after(after); if (it.hasNext()) heads.add(new Head(it.next(), it)); }
+        return new Iterator<>() {
+            long prev = Long.MIN_VALUE;
+            Map.Entry<Long, Ecriture> next = advance();
+
+            private Map.Entry<Long, Ecriture> advance() {
+                while (!heads.isEmpty()) {
+                    Head h = heads.poll();
+                    Map.Entry<Long, Ecriture> cur = h.cur;
+                    if (h.rest.hasNext()) { h.cur = h.rest.next(); heads.add(h); }
+                    if (cur.getKey() != prev) { prev = cur.getKey(); return cur; }
+                }
+                return null;
+            }
+
+            public boolean hasNext() { return next != null; }
+            public Map.Entry<Long, Ecriture> next() {
+                if (next == null) throw new NoSuchElementException();
+                Map.Entry<Long, Ecriture> r = next; next = advance(); return r;
+            }
+        };
+    }
+
+    private static final class Head implements Comparable<Head> {
+        Map.Entry<Long, Ecriture> cur;
+        final Iterator<Map.Entry<Long, Ecriture>> rest;
+        Head(Map.Entry<Long, Ecriture> cur, Iterator<Map.Entry<Long, Ecriture>> rest) { this.cur = cur; this.rest = rest; }
+        public int compareTo(Head o) { return Long.compare(cur.getKey(), o.cur.getKey()); }
+    }
+
+    public static String encodeCursor(long ord) { return Long.toString(ord, 36); }
+
+    public static long decodeCursor(String cursor) {
+        try { return Long.parseLong(cursor, 36); }
+        catch (NumberFormatException ex) { throw new IllegalArgumentException("invalid cursor"); }
+    }
+
+    // Getters
+    public String getJournal() { return journal; }
+    public String getFrom() { return from; }
+    public String getTo() { return to; }
+    public String getCompte() { return compte; }
+    public String getTiers() { return tiers; }
+    public Double getMin() { return min; }
+    public Double getMax() { return max; }
+
+    // Setters
+    public void setJournal(String journal) { this.journal = blankToNull(journal); }
+    public void setFrom(String from) { this.from = blankToNull(from); }
+    public void setTo(String to) { this.to = blankToNull(to); }
+    public void setCompte(String compte) { this.compte = blankToNull(compte); }
+    public void setTiers(String tiers) { this.tiers = blankToNull(tiers); }
+    public void setMin(Double min) { this.min = min; }
+    public void setMax(Double max) { this.max = max; }
+
+    private static String blankToNull(String s) { return s == null || s.isBlank() ? null : s.trim(); }
+
+    public static class Page {
+        private final List<Ecriture> items;
+        private final String nextCursor;
+
+        public Page(List<Ecriture> items, String nextCursor) { this.items = items; this.nextCursor = nextCursor; }
+
+        // Getters
+        public List<Ecriture> getItems() { return items; }
+        public String getNextCursor() { return nextCursor; }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.model.Rapprochement;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DatasetListener;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Lignes de banque déjà pointées avec un relevé: ecritureId → rangs des lignes, tenu par le thread écrivain. */
+public class ReconciledIndex implements DatasetListener<Rapprochement> {
+    private final Map<String, Set<Integer>> pointed = new ConcurrentHashMap<>();
+
+    @Override
+    public void reset(CowList<Rapprochement> items) {
+        pointed.clear();
+        for (Rapprochement r : items) added(0, r);
+    }
+
+    @Override
+    public void added(long ord, Rapprochement r) {
+        if (r.getEcritureId() != null) pointed.computeIfAbsent(r.getEcritureId(), k -> ConcurrentHashMap.newKeySet()).add(r.getLigne());
+    }
+
+    @Override
+    public void removed(long ord, Rapprochement r) {
+        if (r.getEcritureId() == null) return;
+        pointed.computeIfPresent(r.getEcritureId(), (k, s) -> { s.remove(r.getLigne()); return s.isEmpty() ? null : s; });
+    }
+
+    public boolean contains(String ecritureId, int ligne) {
+        Set<Integer> s = ecritureId == null ? null : pointed.get(ecritureId);
+        return s != null && s.contains(ligne);
+    }
+}
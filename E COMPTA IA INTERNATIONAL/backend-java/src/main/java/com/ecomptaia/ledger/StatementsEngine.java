@@ -0,0 +1,246 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.PlanController.AccountItem;
+import com.ecomptaia.model.Cloture;
+import com.ecomptaia.model.Money;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DatasetListener;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * États financiers (compte de résultat, bilan) calculés depuis la balance générale selon
+ * etats/mapping-ohada.json. Les plages de comptes ("70-75", "41"...) sont compilées une fois en table
+ * préfixe → rubrique (le plus long préfixe l'emporte, une référence exacte prime sur une plage);
+ * la rubrique de chaque compte du plan est résolue d'avance, les autres à la première rencontre.
+ * Les résultats sont mis en cache par période et invalidés dès qu'une écriture d'un mois couvert change,
+ * et tous à chaque clôture (début d'exercice des périodes ouvertes).
+ */
+public class StatementsEngine implements DatasetListener<Ecriture> {
+    private static final int MAX_CACHED = 64;
+
+    private final TrialBalance balance;
+    private final Section income;
+    private final Section assets;
+    private final Section liabilities;
+    private final Map<String, int[]> resolved = new ConcurrentHashMap<>();
+    private final Map<Period, Statements> cache = new ConcurrentHashMap<>();
+    private final AtomicLong changes = new AtomicLong();
+
+    public StatementsEngine(JsonNode mapping, TrialBalance balance) {
+        this.balance = balance;
+        this.income = Section.compile(mapping.path("incomeStatement"), "polarity");
+        this.assets = Section.compile(mapping.path("balanceSheet").path("assets"), "side");
+        this.liabilities = Section.compile(mapping.path("balanceSheet").path("liabilities"), "side");
+    }
+
+    @Override
+    public void reset(CowList<Ecriture> items) { changes.incrementAndGet(); cache.clear(); }
+
+    @Override
+    public void added(long ord, Ecriture e) { invalidate(TrialBalance.month(e.getDate())); }
+
+    @Override
+    public void removed(long ord, Ecriture e) { invalidate(TrialBalance.month(e.getDate())); }
+
+    /**
+     * Écouteur à enregistrer avant la balance (et avant l'index des clôtures): marque le début d'une mise à jour.
+     * Un calcul qui lit des cumuls en cours de modification voit alors la version changer et n'est pas mis en cache.
+     */
+    public <T> DatasetListener<T> updateListener() {
+        return new DatasetListener<>() {
+            @Override
+            public void reset(CowList<T> items) { changes.incrementAndGet(); }
+            @Override
+            public void added(long ord, T item) { changes.incrementAndGet(); }
+            @Override
+            public void removed(long ord, T item) { changes.incrementAndGet(); }
+        };
+    }
+
+    /** Écouteur du plan comptable: pré-résout la rubrique de chaque compte du plan. */
+    public DatasetListener<AccountItem> planListener() {
+        return new DatasetListener<>() {
+            @Override
+            public void reset(CowList<AccountItem> items) {
+                resolved.clear();
+                for (AccountItem it : items) if (it.getCode() != null) resolve(it.getCode());
+            }
+            @Override
+            public void added(long ord, AccountItem it) { if (it.getCode() != null) resolve(it.getCode()); }
+        };
+    }
+
+    /** Écouteur des clôtures: une clôture d'exercice déplace le début des périodes sans mois de début. */
+    public DatasetListener<Cloture> closingListener() {
+        return new DatasetListener<>() {
+            @Override
+            public void reset(CowList<Cloture> items) { changes.incrementAndGet(); cache.clear(); }
+            @Override
+            public void added(long ord, Cloture c) { changes.incrementAndGet(); cache.clear(); }
+            @Override
+            public void removed(long ord, Cloture c) { changes.incrementAndGet(); cache.clear(); }
+        };
+    }
+
+    private void invalidate(String month) {
+        changes.incrementAndGet();
+        if (!cache.isEmpty()) cache.keySet().removeIf(p -> p.covers(month));
+    }
+
+    /** États sur [from, to] (mois inclus, null = ouvert). */
+    public Statements compute(String from, String to) {
+        Period p = new Period(from == null ? null : TrialBalance.month(from), to == null ? null : TrialBalance.month(to));
+        Statements s = cache.get(p);
+        if (s != null) return s;
+        long stamp = changes.get();
+        s = build(p);
+        // Pas de mise en cache si une écriture a changé pendant le calcul; revérifié après l'insertion, une
+        // invalidation passée entre le contrôle et put ne doit pas laisser de résultat périmé
+        if (changes.get() == stamp) {
+            if (cache.size() >= MAX_CACHED) cache.clear();
+            cache.put(p, s);
+            if (changes.get() != stamp) cache.remove(p, s);
+        }
+        return s;
+    }
+
+    private Statements build(Period p) {
+        long[] inc = new long[income.rules.size()], act = new long[assets.rules.size()], pas = new long[liabilities.rules.size()];
+        for (TrialBalance.Row r : balance.compute(p.from, p.to, 0, null)) {
+            int[] at = resolve(r.getCompte());
+            long net = r.getDebit() - r.getCredit();
+            if (at[0] >= 0) inc[at[0]] += income.rules.get(at[0]).amount(net);
+            if (at[1] >= 0) act[at[1]] += assets.rules.get(at[1]).amount(net);
+            if (at[2] >= 0) pas[at[2]] += liabilities.rules.get(at[2]).amount(net);
+        }
+        long produits = 0, charges = 0;
+        List<Line> cr = new ArrayList<>();
+        for (int i = 0; i < inc.length; i++) {
+            Rule rule = income.rules.get(i);
+            if (rule.credit) produits += inc[i]; else charges += inc[i];
+            cr.add(new Line(rule.label, rule.credit ? "produit" : "charge", inc[i]));
+        }
+        long resultat = produits - charges;
+        List<Line> actif = lines(assets, act), passif = lines(liabilities, pas);
+        passif.add(new Line("Résultat de l'exercice", "credit", resultat));
+        return new Statements(p.from, p.to, cr, produits, charges, resultat, actif, passif);
+    }
+
+    private static List<Line> lines(Section s, long[] amounts) {
+        List<Line> out = new ArrayList<>(amounts.length + 1);
+        for (int i = 0; i < amounts.length; i++) { Rule r = s.rules.get(i); out.add(new Line(r.label, r.credit ? "credit" : "debit", amounts[i])); }
+        return out;
+    }
+
+    // Rubrique du compte dans chaque section (-1 = hors état)
+    private int[] resolve(String compte) {
+        int[] r = resolved.get(compte);
+        if (r == null) resolved.put(compte, r = new int[] { income.lookup(compte), assets.lookup(compte), liabilities.lookup(compte) });
+        return r;
+    }
+
+    private static final class Rule {
+        final String label;
+        final boolean credit;
+        Rule(String label, boolean credit) { this.label = label; this.credit = credit; }
+
+        // Solde net (débit - crédit) retenu selon le sens de la rubrique
+        long amount(long net) { return credit ? Math.max(0, -net) : Math.max(0, net); }
+    }
+
+    private static final class Section {
+        final List<Rule> rules = new ArrayList<>();
+        final Map<String, int[]> prefixes = new HashMap<>();   // préfixe → {rubrique, exacte ? 1 : 0}
+        int maxLen;
+
+        static Section compile(JsonNode items, String senseField) {
+            Section s = new Section();
+            for (JsonNode it : items) {
+                int idx = s.rules.size();
+                s.rules.add(new Rule(it.path("label").asText(), "credit".equals(it.path(senseField).asText())));
+                for (JsonNode a : it.path("accounts")) {
+                    String expr = a.asText().trim();
+                    int dash = expr.indexOf('-');
+                    if (dash < 0) { s.put(expr, idx, true); continue; }
+                    String lo = expr.substring(0, dash).trim(), hi = expr.substring(dash + 1).trim();
+                    if (lo.length() != hi.length() || !lo.matches("\\d+") || !hi.matches("\\d+"))
+                        throw new IllegalArgumentException("invalid account range: " + expr);
+                    for (long n = Long.parseLong(lo); n <= Long.parseLong(hi); n++) s.put(String.format("%0" + lo.length() + "d", n), idx, false);
+                }
+            }
+            return s;
+        }
+
+        private void put(String prefix, int rule, boolean exact) {
+            int[] cur = prefixes.get(prefix);
+            if (cur == null || (exact && cur[1] == 0)) prefixes.put(prefix, new int[] { rule, exact ? 1 : 0 });
+            maxLen = Math.max(maxLen, prefix.length());
+        }
+
+        int lookup(String compte) {
+            for (int n = Math.min(maxLen, compte.length()); n > 0; n--) {
+                int[] t = prefixes.get(compte.substring(0, n));
+                if (t != null) return t[0];
+            }
+            return -1;
+        }
+    }
+
+    private static final class Period {
+        final String from;
+        final String to;
+        Period(String from, String to) { this.from = from; this.to = to; }
+
+        boolean covers(String month) { return (from == null || from.compareTo(month) <= 0) && (to == null || month.compareTo(to) <= 0); }
+
+        @Override public boolean equals(Object o) { return o instanceof Period p && Objects.equals(from, p.from) && Objects.equals(to, p.to); }
+        @Override public int hashCode() { return Objects.hash(from, to); }
+    }
+
+    public static class Line {
+        private final String label;
+        private final String sens;
+        @Money.Amount private final long montant;
+
+        Line(String label, String sens, long montant) { this.label = label; this.sens = sens; this.montant = montant; }
+
+        // Getters
+        public String getLabel() { return label; }
+        public String getSens() { return sens; }
+        public long getMontant() { return montant; }
+    }
+
+    public static class Statements {
+        private final String from;
+        private final String to;
+        private final List<Line> compteDeResultat;
+        @Money.Amount private final long produits;
+        @Money.Amount private final long charges;
+        @Money.Amount private final long resultat;
+        private final List<Line> actif;
+        private final List<Line> passif;
+
+        Statements(String from, String to, List<Line> compteDeResultat, long produits, long charges, long resultat, List<Line> actif, List<Line> passif) {
+            this.from = from; this.to = to; this.compteDeResultat = List.copyOf(compteDeResultat);
+            this.produits = produits; this.charges = charges; this.resultat = resultat;
+            this.actif = List.copyOf(actif); this.passif = List.copyOf(passif);
+        }
+
+        // Getters
+        public String getFrom() { return from; }
+        public String getTo() { return to; }
+        public List<Line> getCompteDeResultat() { return compteDeResultat; }
+        public long getProduits() { return produits; }
+        public long getCharges() { return charges; }
+        public long getResultat() { return resultat; }
+        public List<Line> getActif() { return actif; }
+        public List<Line> getPassif() { return passif; }
+        @Money.Amount public long getTotalActif() { return actif.stream().mapToLong(Line::getMontant).sum(); }
+        @Money.Amount public long getTotalPassif() { return passif.stream().mapToLong(Line::getMontant).sum(); }
+    }
+}
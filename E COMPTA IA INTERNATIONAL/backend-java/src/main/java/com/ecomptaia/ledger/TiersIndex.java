@@ -0,0 +1,207 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.model.Tiers;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DatasetListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index des tiers, tenu par le thread écrivain du Dataset: id → tiers (avec son ordinal, pour retrouver sa
+ * position dans la vue par recherche dichotomique), code (insensible à la casse) → ids, plus grand numéro
+ * utilisé par préfixe de code ("CLT-0042" → CLT: 42), noms normalisés triés (recherche par début de nom) et
+ * trigrammes des noms → ordinaux triés (recherche approchée), pour la saisie semi-automatique sans parcourir les tiers.
+ */
+public class TiersIndex implements DatasetListener<Tiers> {
+    private static final long[] NO_ORDS = new long[0];
+    private static final double MIN_SHARE = 0.6;   // part des trigrammes de la saisie qu'un nom doit contenir
+
+    private final Map<String, Ref> byId = new ConcurrentHashMap<>();
+    private final Map<Long, Named> byOrd = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Tiers> byName = new ConcurrentSkipListMap<>();   // nom normalisé \0 ordinal
+    private final Map<String, Set<String>> byCode = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> counters = new ConcurrentHashMap<>();
+    private final Map<String, Ords> grams = new ConcurrentHashMap<>();
+
+    @Override
+    public void reset(CowList<Tiers> items) {
+        byId.clear(); byOrd.clear(); byName.clear(); byCode.clear(); counters.clear(); grams.clear();
+        for (int i = 0; i < items.size(); i++) added(items.ordinal(i), items.get(i));
+    }
+
+    @Override
+    public void added(long ord, Tiers t) {
+        if (t.getId() != null) byId.put(t.getId(), new Ref(ord, t));
+        String name = CounterpartyIndex.normalize(t.getName());
+        byOrd.put(ord, new Named(t, name));
+        byName.put(name + '\0' + ord, t);
+        if (t.getCode() != null) {
+            String code = t.getCode().toUpperCase(Locale.ROOT);
+            if (t.getId() != null) byCode.computeIfAbsent(code, k -> ConcurrentHashMap.newKeySet()).add(t.getId());
+            int dash = code.indexOf('-');
+            if (dash > 0) {
+                try {
+                    int n = Integer.parseInt(code.substring(dash + 1));
+                    counters.computeIfAbsent(code.substring(0, dash), k -> new AtomicInteger()).accumulateAndGet(n, Math::max);
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+        for (String g : trigrams(" " + name + " ")) grams.compute(g, (k, o) -> (o == null ? Ords.EMPTY : o).with(ord));
+    }
+
+    @Override
+    public void removed(long ord, Tiers t) {
+        if (t.getId() != null) byId.computeIfPresent(t.getId(), (k, r) -> r.ord == ord ? null : r);
+        Named n = byOrd.remove(ord);
+        String name = n != null ? n.name : CounterpartyIndex.normalize(t.getName());
+        byName.remove(name + '\0' + ord);
+        if (t.getCode() != null && t.getId() != null) {
+            byCode.computeIfPresent(t.getCode().toUpperCase(Locale.ROOT), (k, ids) -> { ids.remove(t.getId()); return ids.isEmpty() ? null : ids; });
+        }
+        // Les compteurs ne redescendent pas: un code supprimé n'est pas réattribué
+        for (String g : trigrams(" " + name + " ")) grams.computeIfPresent(g, (k, o) -> o.without(ord));
+    }
+
+    public Tiers get(String id) { Ref r = id == null ? null : byId.get(id); return r == null ? null : r.tiers; }
+
+    /** Tiers d'identifiant ou, à défaut, de code idOrCode. */
+    public Tiers find(String idOrCode) {
+        Tiers t = get(idOrCode);
+        if (t != null || idOrCode == null) return t;
+        Set<String> ids = byCode.get(idOrCode.toUpperCase(Locale.ROOT));
+        if (ids == null) return null;
+        for (String id : ids) if ((t = get(id)) != null) return t;
+        return null;
+    }
+
+    public boolean isEmpty() { return byOrd.isEmpty(); }
+
+    /** Position du tiers dans la vue, -1 s'il n'y figure pas. */
+    public int position(CowList<Tiers> view, String id) {
+        Ref r = id == null ? null : byId.get(id);
+        if (r == null) return -1;
+        int i = view.indexAfter(r.ord - 1);
+        return i < view.size() && view.ordinal(i) == r.ord ? i : -1;
+    }
+
+    /** Vrai si un autre tiers que excludeId porte déjà ce code (casse ignorée). */
+    public boolean codeUsed(String code, String excludeId) {
+        Set<String> ids = code == null ? null : byCode.get(code.toUpperCase(Locale.ROOT));
+        if (ids == null) return false;
+        for (String id : ids) if (!id.equals(excludeId)) return true;
+        return false;
+    }
+
+    /** Code suivant pour le préfixe ("CLT" → "CLT-0043"), au-delà du plus grand numéro jamais utilisé. */
+    public String nextCode(String prefix) {
+        AtomicInteger c = counters.get(prefix);
+        return prefix + "-" + String.format("%04d", (c == null ? 0 : c.get()) + 1);
+    }
+
+    /**
+     * Tiers dont le nom ressemble à q (début de mot saisi): d'abord les noms commençant par q, par ordre
+     * alphabétique (lus dans l'index trié), puis, s'il en manque, les noms partageant le plus de trigrammes avec q.
+     * Un nom doit contenir au moins 60 % des trigrammes de q: il figure donc dans l'une des listes des
+     * (n - m + 1) trigrammes les plus rares, seules parcourues; seuls les limit meilleurs sont gardés.
+     */
+    public List<Tiers> search(String q, String type, int limit) {
+        String nq = CounterpartyIndex.normalize(q);
+        if (nq.length() < 2 || limit <= 0) return List.of();
+        List<Tiers> out = new ArrayList<>(limit);
+        Set<String> seen = new HashSet<>();
+        for (Tiers t : byName.subMap(nq, true, nq + Character.MAX_VALUE, false).values()) {
+            if (type != null && !type.equalsIgnoreCase(t.getType())) continue;
+            out.add(t); seen.add(t.getId());
+            if (out.size() == limit) return out;
+        }
+
+        List<String> qg = new ArrayList<>(new LinkedHashSet<>(trigrams(" " + nq)));
+        Ords[] postings = new Ords[qg.size()];
+        for (int i = 0; i < postings.length; i++) postings[i] = grams.getOrDefault(qg.get(i), Ords.EMPTY);
+        Arrays.sort(postings, Comparator.comparingInt(o -> o.n));
+        int need = Math.max(1, (int) Math.ceil(qg.size() * MIN_SHARE));
+
+        // Meilleurs candidats restants: tas borné, le moins bon en tête
+        int want = limit - out.size();
+        Comparator<Hit> better = Comparator.comparingInt((Hit h) -> h.score).reversed().thenComparing(h -> h.name);
+        PriorityQueue<Hit> top = new PriorityQueue<>(want + 1, better.reversed());
+        int sources = postings.length - need + 1;
+        for (int k = 0; k < sources; k++) {
+            Ords src = postings[k];
+            for (int i = 0; i < src.n; i++) {
+                long ord = src.a[i];
+                boolean dup = false;   // déjà vu dans une liste plus rare
+                for (int j = 0; j < k && !dup; j++) dup = Arrays.binarySearch(postings[j].a, 0, postings[j].n, ord) >= 0;
+                if (dup) continue;
+                int s = 1;
+                for (int j = k + 1; j < postings.length; j++) if (Arrays.binarySearch(postings[j].a, 0, postings[j].n, ord) >= 0) s++;
+                if (s < need) continue;
+                if (top.size() == want && s < top.peek().score) continue;
+                Named n = byOrd.get(ord);
+                if (n == null || seen.contains(n.tiers.getId()) || (type != null && !type.equalsIgnoreCase(n.tiers.getType()))) continue;
+                top.add(new Hit(n.tiers, s, n.name));
+                if (top.size() > want) top.poll();
+            }
+        }
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(better);
+        for (Hit h : hits) out.add(h.tiers);
+        return out;
+    }
+
+    private static List<String> trigrams(String s) {
+        if (s.isBlank()) return List.of();
+        List<String> out = new ArrayList<>(Math.max(0, s.length() - 2));
+        for (int i = 0; i + 3 <= s.length(); i++) out.add(s.substring(i, i + 3));
+        return out;
+    }
+
+    private static final class Ref {
+        final long ord;
+        final Tiers tiers;
+        Ref(long ord, Tiers tiers) { this.ord = ord; this.tiers = tiers; }
+    }
+
+    private static final class Named {
+        final Tiers tiers;
+        final String name;   // normalisé
+        Named(Tiers tiers, String name) { this.tiers = tiers; this.name = name; }
+    }
+
+    private static final class Hit {
+        final Tiers tiers;
+        final int score;
+        final String name;
+        Hit(Tiers tiers, int score, String name) { this.tiers = tiers; this.score = score; this.name = name; }
+    }
+
+    // Ordinaux triés d'un trigramme; version immuable, les ajouts en fin partagent le tableau (comme CowList)
+    private static final class Ords {
+        static final Ords EMPTY = new Ords(NO_ORDS, 0);
+        final long[] a;
+        final int n;
+        Ords(long[] a, int n) { this.a = a; this.n = n; }
+
+        Ords with(long ord) {
+            int i = Arrays.binarySearch(a, 0, n, ord);
+            if (i >= 0) return this;
+            i = -i - 1;
+            if (i == n && n < a.length) { a[n] = ord; return new Ords(a, n + 1); }
+            long[] b = new long[Math.max(4, n + (n >> 1) + 1)];
+            System.arraycopy(a, 0, b, 0, i); b[i] = ord; System.arraycopy(a, i, b, i + 1, n - i);
+            return new Ords(b, n + 1);
+        }
+
+        Ords without(long ord) {
+            int i = Arrays.binarySearch(a, 0, n, ord);
+            if (i < 0) return this;
+            if (n == 1) return null;
+            long[] b = new long[n - 1];
+            System.arraycopy(a, 0, b, 0, i); System.arraycopy(a, i + 1, b, i, n - 1 - i);
+            return new Ords(b, n - 1);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.ecomptaia.ledger;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+import com.ecomptaia.model.Cloture;
+import com.ecomptaia.model.Money;
+import com.ecomptaia.store.ColumnArchive;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DatasetListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balance générale tenue au fil de l'eau: cumuls débit / crédit (centimes) par mois (yyyy-MM) et par compte,
+ * mis à jour en O(lignes) à chaque ajout / suppression d'écriture. Une balance sur une période ne
+ * dépend donc que du nombre de mois et de comptes, pas du nombre d'écritures. Les périodes closes couvertes
+ * par la requête sont lues dans l'instantané de leur clôture; sans mois de début, la balance part de
+ * l'exercice en cours (après la dernière clôture d'exercice, dont les à-nouveaux reportent les soldes). Les
+ * autres mois d'un exercice archivé sont cumulés en un passage sur les colonnes de son archive.
+ * Les lectures ne prennent pas de verrou: une version impaire marque une écriture en cours de publication
+ * (de la publication de la vue à la dernière ligne cumulée), un calcul qui la croise est refait.
+ */
+public class TrialBalance implements DatasetListener<Ecriture> {
+    private static final String NO_PERIOD = "0000-00";
+    private static final int MAX_RETRIES = 100;
+
+    private final ConcurrentSkipListMap<String, Map<String, Totals>> byMonth = new ConcurrentSkipListMap<>();
+    private final ClosingIndex closures;
+    private final LedgerArchives archives;
+    private final AtomicLong version = new AtomicLong();
+
+    public TrialBalance(ClosingIndex closures, LedgerArchives archives) { this.closures = closures; this.archives = archives; }
+
+    @Override
+    public void publishing() { version.incrementAndGet(); }
+
+    @Override
+    public void published() { version.incrementAndGet(); }
+
+    @Override
+    public void reset(CowList<Ecriture> items) {
+        // hors publication (enregistrement du listener): la remise à zéro porte sa propre version
+        boolean own = (version.get() & 1) == 0;
+        if (own) version.incrementAndGet();
+        byMonth.clear();
+        for (Ecriture e : items) apply(e, 1);
+        if (own) version.incrementAndGet();
+    }
+
+    @Override
+    public void added(long ord, Ecriture e) { apply(e, 1); }
+
+    @Override
+    public void removed(long ord, Ecriture e) { apply(e, -1); }
+
+    private void apply(Ecriture e, int sign) {
+        if (e.getLignes() == null) return;
+        Map<String, Totals> m = byMonth.computeIfAbsent(month(e.getDate()), k -> new ConcurrentHashMap<>());
+        for (Ligne l : e.getLignes()) {
+            if (l.getCompte() == null) continue;
+            m.computeIfAbsent(l.getCompte(), k -> new Totals()).add(sign * l.getDebit(), sign * l.getCredit());
+        }
+    }
+
+    /**
+     * Balance entre deux mois inclus (null = ouvert), regroupée sur les level premiers caractères du compte
+     * (1 = classe, 0 = compte détaillé), filtrée par préfixe de compte.
+     */
+    public List<Row> compute(String from, String to, int level, String prefix) {
+        for (int attempt = 0; ; attempt++) {
+            long v = version.get();
+            if ((v & 1) != 0 && attempt < MAX_RETRIES) { Thread.yield(); continue; }
+            List<Row> rows = build(from, to, level, prefix);
+            // au-delà des essais (écritures continues), le dernier calcul est rendu tel quel
+            if (version.get() == v || attempt >= MAX_RETRIES) return rows;
+        }
+    }
+
+    private List<Row> build(String from, String to, int level, String prefix) {
+        String hi = to == null ? null : month(to);
+        String lo = from != null ? month(from) : closures.exerciceStart(hi);
+        ConcurrentNavigableMap<String, Map<String, Totals>> months = byMonth;
+        if (lo != null) months = months.tailMap(lo, true);
+        if (hi != null) months = months.headMap(hi, true);
+        TreeMap<String, Row> rows = new TreeMap<>();
+        List<Cloture> closed = closures.within(lo, hi);
+        for (Cloture c : closed) {
+            for (Cloture.Solde s : c.getSoldes()) add(rows, s.getCompte(), s.getDebit(), s.getCredit(), level, prefix);
+        }
+        int k = 0;
+        for (Map.Entry<String, Map<String, Totals>> m : months.entrySet()) {
+            // mois d'une clôture déjà comptée (clôtures et mois dans le même ordre)
+            while (k < closed.size() && closed.get(k).getAu().compareTo(m.getKey()) < 0) k++;
+            if (k < closed.size() && closed.get(k).getDu().compareTo(m.getKey()) <= 0) continue;
+            for (Map.Entry<String, Totals> t : m.getValue().entrySet()) add(rows, t.getKey(), t.getValue().debit, t.getValue().credit, level, prefix);
+        }
+        if (!archives.isEmpty()) {
+            // mois archivés entre les clôtures comptées
+            ColumnArchive.TotalsConsumer fn = (compte, d, c) -> add(rows, compte, d, c, level, prefix);
+            String cur = lo;
+            for (Cloture c : closed) { archives.totals(cur, c.getDu(), fn); cur = ClosingIndex.next(c.getAu()); }
+            archives.totals(cur, hi == null ? null : ClosingIndex.next(hi), fn);
+        }
+        List<Row> out = new ArrayList<>(rows.size());
+        for (Row r : rows.values()) if (r.debit != 0 || r.credit != 0) out.add(r);
+        return out;
+    }
+
+    private static void add(TreeMap<String, Row> rows, String compte, long debit, long credit, int level, String prefix) {
+        if (prefix != null && !compte.startsWith(prefix)) return;
+        String key = level > 0 && compte.length() > level ? compte.substring(0, level) : compte;
+        rows.computeIfAbsent(key, Row::new).add(debit, credit);
+    }
+
+    /** Premier mois daté portant des écritures, null si aucun. */
+    public String firstMonth() {
+        for (String m : byMonth.keySet()) if (!NO_PERIOD.equals(m)) return m;
+        return null;
+    }
+
+    static String month(String date) {
+        return date == null || date.length() < 7 ? NO_PERIOD : date.substring(0, 7);
+    }
+
+    private static final class Totals {
+        volatile long debit;
+        volatile long credit;
+        void add(long d, long c) { debit += d; credit += c; }
+    }
+
+    public static class Row {
+        private final String compte;
+        @Money.Amount private long debit;
+        @Money.Amount private long credit;
+
+        Row(String compte) { this.compte = compte; }
+
+        void add(long d, long c) { debit += d; credit += c; }
+
+        // Getters
+        public String getCompte() { return compte; }
+        public String getClasse() { return compte.substring(0, 1); }
+        public long getDebit() { return debit; }
+        public long getCredit() { return credit; }
+        @Money.Amount public long getSoldeDebiteur() { return Math.max(0, debit - credit); }
+        @Money.Amount public long getSoldeCrediteur() { return Math.max(0, credit - debit); }
+    }
+}
@@ -0,0 +1,269 @@
+package com.ecomptaia.lettrage;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+import com.ecomptaia.model.Lettre;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DataRepository;
+import com.ecomptaia.store.Dossier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Lettrage automatique des comptes de tiers (ecompta.lettrage.comptes, 401 et 411 par défaut): les lignes non
+ * lettrées d'un même compte et d'un même tiersId sont rapprochées débits contre crédits. D'abord les égalités
+ * exactes 1:1, par table de hachage des montants (la ligne ouverte la plus ancienne d'abord); puis, pour chaque
+ * ligne restante de la plus forte à la plus faible, un sous-ensemble de lignes de sens opposé, proches en date,
+ * dont la somme égale son montant (N:1 ou 1:N): recherche bornée à max-items lignes parmi window candidates et
+ * max-nodes nœuds. Les tiers sont traités en parallèle; les lettres sont enregistrées dans le lettrage.json du dossier
+ * en une transaction, ce qui sérialise les lettrages concurrents.
+ */
+@Component
+public class LettrageEngine {
+    private static final int SCAN = 8;   // lignes parcourues par candidat retenu, au plus
+
+    private final DataRepository repo;
+    private final String[] comptes;
+    private final int maxItems;
+    private final int window;
+    private final int maxNodes;
+
+    public LettrageEngine(DataRepository repo,
+                          @Value("${ecompta.lettrage.comptes:401,411}") String comptes,
+                          @Value("${ecompta.lettrage.max-items:5}") int maxItems,
+                          @Value("${ecompta.lettrage.window:40}") int window,
+                          @Value("${ecompta.lettrage.max-nodes:20000}") int maxNodes) {
+        this.repo = repo;
+        this.comptes = Arrays.stream(comptes.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toArray(String[]::new);
+        this.maxItems = maxItems;
+        this.window = Math.max(1, window);
+        this.maxNodes = maxNodes;
+    }
+
+    private boolean lettrable(String compte) {
+        if (compte == null) return false;
+        for (String p : comptes) if (compte.startsWith(p)) return true;
+        return false;
+    }
+
+    /**
+     * Lettre les lignes ouvertes, limitées au compte (préfixe) et au tiers s'ils sont donnés. Les lettres dont
+     * une écriture a été supprimée sont retirées au passage et leurs autres lignes redeviennent ouvertes.
+     */
+    public Report run(String compte, String tiersId) throws IOException {
+        long t0 = System.nanoTime();
+        Dossier d = repo.current();
+        CowList<Ecriture> view = d.ecritures().view();
+        Report report = d.lettrage().write(tx -> {
+            Report rep = new Report();
+            Set<String> ids = new HashSet<>();   // écritures portant une ligne lettrable
+            List<Ecriture> scoped = new ArrayList<>();
+            for (Ecriture e : view) {
+                if (e.getId() == null || e.getLignes() == null) continue;
+                boolean any = false;
+                for (Ligne l : e.getLignes()) if (lettrable(l.getCompte())) { any = true; break; }
+                if (any) { ids.add(e.getId()); scoped.add(e); }
+            }
+
+            Set<Lettre> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+            Set<String> lettered = new HashSet<>();
+            Map<String, Integer> lastCode = new HashMap<>();
+            for (Lettre l : tx.items()) {
+                List<String> refs = l.getLignes() == null ? List.of() : l.getLignes();
+                boolean ok = true;
+                for (String ref : refs) {
+                    String id = ref.substring(0, Math.max(0, ref.lastIndexOf('#')));
+                    // une écriture archivée n'est plus dans la vue mais sa lettre reste valable
+                    if (!ids.contains(id) && !d.archives().contains(id)) { ok = false; break; }
+                }
+                if (!ok) { stale.add(l); continue; }
+                lettered.addAll(refs);
+                lastCode.merge(l.getCompte() + "|" + l.getTiersId(), decode(l.getCode()), Math::max);
+            }
+
+            Map<String, List<Item>> groups = new HashMap<>();
+            for (Ecriture e : scoped) {
+                for (int i = 0; i < e.getLignes().size(); i++) {
+                    Ligne l = e.getLignes().get(i);
+                    long a = l.getDebit() - l.getCredit();
+                    if (a == 0 || !lettrable(l.getCompte()) || l.getTiersId() == null || l.getTiersId().isBlank()) continue;
+                    if (compte != null && !l.getCompte().startsWith(compte)) continue;
+                    if (tiersId != null && !tiersId.equals(l.getTiersId().trim())) continue;
+                    String ref = e.getId() + "#" + i;
+                    if (lettered.contains(ref)) continue;
+                    groups.computeIfAbsent(l.getCompte() + "|" + l.getTiersId().trim(), k -> new ArrayList<>())
+                          .add(new Item(ref, e.getDate() == null ? "" : e.getDate(), a));
+                }
+            }
+
+            // Un tiers par tâche sur le pool fork/join commun
+            List<Map.Entry<String, List<Match>>> matched = groups.entrySet().parallelStream()
+                    .map(g -> Map.entry(g.getKey(), match(g.getValue()))).toList();
+
+            String today = LocalDate.now().toString();
+            List<Lettre> created = new ArrayList<>();
+            for (Map.Entry<String, List<Match>> g : matched) {
+                int sep = g.getKey().indexOf('|');
+                int code = lastCode.getOrDefault(g.getKey(), 0);
+                for (Match m : g.getValue()) {
+                    Lettre l = new Lettre();
+                    l.setId(d.sequences().nextId("LET"));
+                    l.setCode(encode(++code));
+                    l.setCompte(g.getKey().substring(0, sep));
+                    l.setTiersId(g.getKey().substring(sep + 1));
+                    l.setMode(m.items.size() == 2 ? "EXACT" : "COMBINAISON");
+                    long total = 0;
+                    List<String> refs = new ArrayList<>(m.items.size());
+                    for (Item it : m.items) { refs.add(it.ref); if (it.amount > 0) total += it.amount; }
+                    l.setMontant(total);
+                    l.setDate(today);
+                    l.setLignes(refs);
+                    created.add(l);
+                    if (m.items.size() == 2) rep.exactes++; else rep.combinaisons++;
+                    rep.lignesLettrees += m.items.size();
+                }
+            }
+            for (List<Item> g : groups.values()) rep.lignesOuvertes += g.size();
+            rep.tiers = groups.size();
+            rep.restantes = rep.lignesOuvertes - rep.lignesLettrees;
+            rep.retirees = stale.size();
+            if (!stale.isEmpty()) tx.removeIf(stale::contains);
+            tx.addAll(created);
+            return rep;
+        });
+        report.tookMs = (System.nanoTime() - t0) / 1_000_000;
+        return report;
+    }
+
+    // Lettrage des lignes ouvertes d'un compte de tiers
+    private List<Match> match(List<Item> items) {
+        items.sort(Comparator.comparing((Item x) -> x.date));   // tri stable: ordre du grand livre à date égale
+        int n = items.size();
+        boolean[] used = new boolean[n];
+        List<Match> out = new ArrayList<>();
+
+        Map<Long, ArrayDeque<Integer>> open = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            ArrayDeque<Integer> q = open.get(-items.get(i).amount);
+            if (q != null && !q.isEmpty()) {
+                int j = q.poll();
+                used[i] = used[j] = true;
+                out.add(new Match(List.of(items.get(j), items.get(i))));
+            } else open.computeIfAbsent(items.get(i).amount, k -> new ArrayDeque<>()).add(i);
+        }
+        if (maxItems < 2) return out;
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < n; i++) if (!used[i]) order.add(i);
+        order.sort(Comparator.comparingLong((Integer i) -> -Math.abs(items.get(i).amount)));
+        int[] cand = new int[window];
+        long[] v = new long[window];
+        long[] suffix = new long[window + 1];
+        int[] pick = new int[maxItems];
+        int[] budget = new int[1];
+        for (int t : order) {
+            if (used[t]) continue;
+            long goal = Math.abs(items.get(t).amount);
+            boolean credit = items.get(t).amount < 0;
+            // Candidats: ouverts, de sens opposé, pas plus forts, au plus près de t dans l'ordre chronologique
+            int c = 0;
+            for (int d = 1, scanned = 0; c < window && scanned < window * SCAN && (t - d >= 0 || t + d < n); d++) {
+                for (int j = t - d; j <= t + d && c < window; j += 2 * d) {
+                    if (j < 0 || j >= n) continue;
+                    scanned++;
+                    long a = items.get(j).amount;
+                    if (used[j] || (a < 0) == credit || Math.abs(a) > goal) continue;
+                    cand[c] = j; v[c] = Math.abs(a); c++;
+                }
+            }
+            if (c < 2) continue;
+            // Montants décroissants (tri par insertion, c <= window)
+            for (int i = 1; i < c; i++) {
+                long x = v[i]; int y = cand[i]; int k = i - 1;
+                while (k >= 0 && v[k] < x) { v[k + 1] = v[k]; cand[k + 1] = cand[k]; k--; }
+                v[k + 1] = x; cand[k + 1] = y;
+            }
+            suffix[c] = 0;
+            for (int i = c - 1; i >= 0; i--) suffix[i] = suffix[i + 1] + v[i];
+            if (suffix[0] < goal) continue;
+            budget[0] = maxNodes;
+            int depth = search(v, suffix, c, 0, goal, 0, pick, budget);
+            if (depth < 2) continue;
+            List<Item> m = new ArrayList<>(depth + 1);
+            m.add(items.get(t)); used[t] = true;
+            for (int k = 0; k < depth; k++) { m.add(items.get(cand[pick[k]])); used[cand[pick[k]]] = true; }
+            m.sort(Comparator.comparing((Item x) -> x.date));
+            out.add(new Match(m));
+        }
+        return out;
+    }
+
+    // Sous-ensemble de v[from..c) (décroissant) de somme rest, au plus maxItems - depth termes; profondeur atteinte ou -1
+    private int search(long[] v, long[] suffix, int c, int from, long rest, int depth, int[] pick, int[] budget) {
+        if (rest == 0) return depth;
+        if (depth == maxItems || --budget[0] < 0) return -1;
+        for (int j = from; j < c; j++) {
+            if (suffix[j] < rest || v[j] * (maxItems - depth) < rest) return -1;
+            if (v[j] > rest) continue;
+            pick[depth] = j;
+            int r = search(v, suffix, c, j + 1, rest - v[j], depth + 1, pick, budget);
+            if (r >= 0 || budget[0] < 0) return r;
+        }
+        return -1;
+    }
+
+    // Codes de lettre: A..Z, AA..ZZ, AAA... (numération bijective en base 26)
+    static String encode(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (; n > 0; n = (n - 1) / 26) sb.append((char) ('A' + (n - 1) % 26));
+        return sb.reverse().toString();
+    }
+
+    static int decode(String code) {
+        if (code == null) return 0;
+        int n = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char ch = code.charAt(i);
+            if (ch < 'A' || ch > 'Z' || n > (Integer.MAX_VALUE - 26) / 26) return 0;
+            n = n * 26 + (ch - 'A' + 1);
+        }
+        return n;
+    }
+
+    private static final class Item {
+        final String ref;
+        final String date;
+        final long amount;   // débit - crédit
+        Item(String ref, String date, long amount) { this.ref = ref; this.date = date; this.amount = amount; }
+    }
+
+    private static final class Match {
+        final List<Item> items;
+        Match(List<Item> items) { this.items = items; }
+    }
+
+    public static class Report {
+        private int tiers;
+        private long lignesOuvertes;
+        private long exactes;
+        private long combinaisons;
+        private long lignesLettrees;
+        private long restantes;
+        private int retirees;
+        private long tookMs;
+
+        // Getters
+        public int getTiers() { return tiers; }
+        public long getLignesOuvertes() { return lignesOuvertes; }
+        public long getExactes() { return exactes; }
+        public long getCombinaisons() { return combinaisons; }
+        public long getLignesLettrees() { return lignesLettrees; }
+        public long getRestantes() { return restantes; }
+        public int getRetirees() { return retirees; }
+        public long getTookMs() { return tookMs; }
+    }
+}
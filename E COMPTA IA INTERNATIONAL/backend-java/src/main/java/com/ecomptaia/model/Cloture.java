@@ -0,0 +1,54 @@
+package com.ecomptaia.model;
+
+import java.util.List;
+
+public class Cloture {
+    private String id;
+    private String type; // EXERCICE | MOIS
+    private String du; // premier mois clos (yyyy-MM)
+    private String au; // dernier mois clos (yyyy-MM), inclus
+    private String date; // date de la clôture
+    @Money.Amount private long resultat; // exercice: solde des comptes reportés (bénéfice > 0)
+    private String ecritureAN; // exercice: écriture d'à-nouveaux générée
+    private List<Solde> soldes; // par compte, trié
+
+    // Getters
+    public String getId() { return id; }
+    public String getType() { return type; }
+    public String getDu() { return du; }
+    public String getAu() { return au; }
+    public String getDate() { return date; }
+    public long getResultat() { return resultat; }
+    public String getEcritureAN() { return ecritureAN; }
+    public List<Solde> getSoldes() { return soldes; }
+
+    // Setters
+    public void setId(String id) { this.id = id; }
+    public void setType(String type) { this.type = type; }
+    public void setDu(String du) { this.du = du; }
+    public void setAu(String au) { this.au = au; }
+    public void setDate(String date) { this.date = date; }
+    public void setResultat(long resultat) { this.resultat = resultat; }
+    public void setEcritureAN(String ecritureAN) { this.ecritureAN = ecritureAN; }
+    public void setSoldes(List<Solde> soldes) { this.soldes = soldes; }
+
+    /** Mouvements d'un compte sur la période close, et son solde à la fin (cumulé depuis le début de l'exercice). */
+    public static class Solde {
+        private String compte;
+        @Money.Amount private long debit;
+        @Money.Amount private long credit;
+        @Money.Amount private long solde; // débit - crédit
+
+        // Getters
+        public String getCompte() { return compte; }
+        public long getDebit() { return debit; }
+        public long getCredit() { return credit; }
+        public long getSolde() { return solde; }
+
+        // Setters
+        public void setCompte(String compte) { this.compte = compte; }
+        public void setDebit(long debit) { this.debit = debit; }
+        public void setCredit(long credit) { this.credit = credit; }
+        public void setSolde(long solde) { this.solde = solde; }
+    }
+}
@@ -21,20 +21,20 @@ public class Journal {
 class EcritureLigne {
     private String compte;
     private String libelle;
-    private double debit;
-    private double credit;
+    @Money.Amount private long debit;
+    @Money.Amount private long credit;
 
     // Getters
     public String getCompte() { return compte; }
     public String getLibelle() { return libelle; }
-    public double getDebit() { return debit; }
-    public double getCredit() { return credit; }
+    public long getDebit() { return debit; }
+    public long getCredit() { return credit; }
 
     // Setters
     public void setCompte(String compte) { this.compte = compte; }
     public void setLibelle(String libelle) { this.libelle = libelle; }
-    public void setDebit(double debit) { this.debit = debit; }
-    public void setCredit(double credit) { this.credit = credit; }
+    public void setDebit(long debit) { this.debit = debit; }
+    public void setCredit(long credit) { this.credit = credit; }
 }
 
 class Ecriture {
@@ -44,8 +44,8 @@ class Ecriture {
     private String piece;
     private String reference;
     private List<EcritureLigne> lignes;
-    private double totalDebit;
-    private double totalCredit;
+    @Money.Amount private long totalDebit;
+    @Money.Amount private long totalCredit;
 
     // Getters
     public String getId() { return id; }
@@ -54,8 +54,8 @@ class Ecriture {
     public String getPiece() { return piece; }
     public String getReference() { return reference; }
     public List<EcritureLigne> getLignes() { return lignes; }
-    public double getTotalDebit() { return totalDebit; }
-    public double getTotalCredit() { return totalCredit; }
+    public long getTotalDebit() { return totalDebit; }
+    public long getTotalCredit() { return totalCredit; }
 
     // Setters
     public void setId(String id) { this.id = id; }
@@ -64,6 +64,6 @@ class Ecriture {
     public void setPiece(String piece) { this.piece = piece; }
     public void setReference(String reference) { this.reference = reference; }
     public void setLignes(List<EcritureLigne> lignes) { this.lignes = lignes; }
-    public void setTotalDebit(double totalDebit) { this.totalDebit = totalDebit; }
-    public void setTotalCredit(double totalCredit) { this.totalCredit = totalCredit; }
+    public void setTotalDebit(long totalDebit) { this.totalDebit = totalDebit; }
+    public void setTotalCredit(long totalCredit) { this.totalCredit = totalCredit; }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.ecomptaia.model;
+
+import java.util.List;
+
+public class Lettre {
+    private String id;
+    private String code; // A, B, ... Z, AA: unique par compte et tiers
+    private String compte;
+    private String tiersId;
+    private String mode; // EXACT (1:1) | COMBINAISON (N:1, 1:N)
+    @Money.Amount private long montant; // montant soldé (débits = crédits)
+    private String date; // date du lettrage
+    private List<String> lignes; // "ecritureId#indexLigne"
+
+    // Getters
+    public String getId() { return id; }
+    public String getCode() { return code; }
+    public String getCompte() { return compte; }
+    public String getTiersId() { return tiersId; }
+    public String getMode() { return mode; }
+    public long getMontant() { return montant; }
+    public String getDate() { return date; }
+    public List<String> getLignes() { return lignes; }
+
+    // Setters
+    public void setId(String id) { this.id = id; }
+    public void setCode(String code) { this.code = code; }
+    public void setCompte(String compte) { this.compte = compte; }
+    public void setTiersId(String tiersId) { this.tiersId = tiersId; }
+    public void setMode(String mode) { this.mode = mode; }
+    public void setMontant(long montant) { this.montant = montant; }
+    public void setDate(String date) { this.date = date; }
+    public void setLignes(List<String> lignes) { this.lignes = lignes; }
+}
@@ -0,0 +1,89 @@
+package com.ecomptaia.model;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Montants en virgule fixe: un long en centimes, additionné et comparé exactement.
+ * En JSON un montant reste un nombre décimal en unités (1234.50), écrit et relu sans passer par un double:
+ * les fichiers data/ existants (anciens champs double) se relisent tels quels.
+ */
+public final class Money {
+    // En deçà, un double à 2 décimales multiplié par 100 s'arrondit exactement au bon entier
+    private static final double EXACT_LIMIT = 1e13;
+
+    private Money() {}
+
+    /** Unités (éventuellement fractionnaires) → centimes, arrondi au plus proche. */
+    public static long of(double units) {
+        if (Math.abs(units) < EXACT_LIMIT) return Math.round(units * 100.0);
+        return BigDecimal.valueOf(units).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /** Texte décimal ("1234.56", "-12", "1e3") → centimes, sans passer par un double. */
+    public static long parse(String s) {
+        return of(new BigDecimal(s.trim()));
+    }
+
+    /** Décimal en unités → centimes, arrondi au plus proche. */
+    public static long of(BigDecimal units) {
+        return units.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /** À poser sur un champ long en centimes: (dé)sérialisé comme un montant décimal en unités. */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.FIELD, ElementType.METHOD})
+    @JacksonAnnotationsInside
+    @JsonSerialize(using = Serializer.class)
+    @JsonDeserialize(using = Deserializer.class)
+    public @interface Amount {}
+
+    public static class Serializer extends StdSerializer<Long> {
+        private static final long serialVersionUID = 1L;
+
+        public Serializer() { super(Long.class); }
+
+        @Override
+        public void serialize(Long cents, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(BigDecimal.valueOf(cents, 2));
+        }
+    }
+
+    public static class Deserializer extends StdDeserializer<Long> {
+        private static final long serialVersionUID = 1L;
+
+        public Deserializer() { super(Long.class); }
+
+        @Override
+        public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken t = p.currentToken();
+            try {
+                if (t == JsonToken.VALUE_NUMBER_INT) return Math.multiplyExact(p.getLongValue(), 100L);
+                if (t == JsonToken.VALUE_NUMBER_FLOAT) return of(p.getDecimalValue());
+                if (t == JsonToken.VALUE_STRING) return p.getText().isBlank() ? 0L : parse(p.getText().replace(',', '.'));
+            } catch (ArithmeticException | NumberFormatException e) {
+                return (Long) ctxt.handleWeirdStringValue(Long.class, p.getText(), "not a valid amount");
+            }
+            return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+        }
+
+        @Override
+        public Long getNullValue(DeserializationContext ctxt) { return 0L; }
+    }
+}
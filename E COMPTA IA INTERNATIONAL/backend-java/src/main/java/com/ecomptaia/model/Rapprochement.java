@@ -0,0 +1,38 @@
+package com.ecomptaia.model;
+
+public class Rapprochement {
+    private String id;
+    private String compte; // compte de banque, ex 512
+    private String releve; // référence du relevé
+    private String date; // date de l'opération au relevé
+    private String libelle;
+    @Money.Amount private long montant; // au relevé: positif = crédit (encaissement)
+    private String reference;
+    private String ecritureId;
+    private int ligne; // rang de la ligne dans l'écriture
+    private String dateValidation;
+
+    // Getters
+    public String getId() { return id; }
+    public String getCompte() { return compte; }
+    public String getReleve() { return releve; }
+    public String getDate() { return date; }
+    public String getLibelle() { return libelle; }
+    public long getMontant() { return montant; }
+    public String getReference() { return reference; }
+    public String getEcritureId() { return ecritureId; }
+    public int getLigne() { return ligne; }
+    public String getDateValidation() { return dateValidation; }
+
+    // Setters
+    public void setId(String id) { this.id = id; }
+    public void setCompte(String compte) { this.compte = compte; }
+    public void setReleve(String releve) { this.releve = releve; }
+    public void setDate(String date) { this.date = date; }
+    public void setLibelle(String libelle) { this.libelle = libelle; }
+    public void setMontant(long montant) { this.montant = montant; }
+    public void setReference(String reference) { this.reference = reference; }
+    public void setEcritureId(String ecritureId) { this.ecritureId = ecritureId; }
+    public void setLigne(int ligne) { this.ligne = ligne; }
+    public void setDateValidation(String dateValidation) { this.dateValidation = dateValidation; }
+}
@@ -0,0 +1,280 @@
+package com.ecomptaia.rapprochement;
+
+import com.ecomptaia.ledger.BankIndex;
+import com.ecomptaia.ledger.BankIndex.Mov;
+import com.ecomptaia.ledger.ReconciledIndex;
+import com.ecomptaia.model.Money;
+import com.ecomptaia.model.Rapprochement;
+import com.ecomptaia.store.DataRepository;
+import com.ecomptaia.store.Dossier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Rapprochement bancaire: chaque ligne d'un relevé est comparée aux mouvements non pointés du compte de banque
+ * de même montant (à ecart-montant près) datés à jours jours au plus, lus dans l'index trié montant / date
+ * (BankIndex). Chaque ligne garde ses PER_LINE meilleurs candidats; les couples sont retenus du plus proche au
+ * plus lointain (écart de montant, puis de date), chaque ligne et chaque mouvement une seule fois. Une ligne dont
+ * tous les candidats ont été pris par d'autres est recherchée à nouveau parmi les mouvements restés libres.
+ * Le reste est rendu non rapproché des deux côtés.
+ * Les couples validés sont enregistrés dans le rapprochements.json du dossier et leurs mouvements ne sont plus
+ * proposés (ReconciledIndex).
+ */
+@Component
+public class BankReconciler {
+    private static final int PER_LINE = 8;   // candidats gardés par ligne de relevé (montants récurrents)
+    private static final Comparator<Cand> CLOSEST = (a, b) -> {
+        int c = Long.compare(a.ecartMontant, b.ecartMontant);
+        if (c == 0) c = Long.compare(a.ecartJours, b.ecartJours);
+        if (c == 0) c = Integer.compare(a.line, b.line);
+        if (c == 0) c = Long.compare(a.mov.ord, b.mov.ord);
+        return c != 0 ? c : Integer.compare(a.mov.idx, b.mov.idx);
+    };
+
+    private final DataRepository repo;
+    private final String compte;
+    private final int jours;
+    private final long tolerance;
+
+    public BankReconciler(DataRepository repo,
+                          @Value("${ecompta.rapprochement.comptes:512}") String comptes,
+                          @Value("${ecompta.rapprochement.jours:5}") int jours,
+                          @Value("${ecompta.rapprochement.ecart-montant:0}") String ecartMontant) {
+        this.repo = repo;
+        this.compte = comptes.split(",")[0].trim();   // compte rapproché par défaut
+        this.jours = Math.max(0, jours);
+        this.tolerance = Math.abs(Money.parse(ecartMontant));
+    }
+
+    /** Couples proposés pour les lignes du relevé, lignes et mouvements de la période restés sans correspondance. */
+    public Proposal propose(String compte, List<ReleveLigne> lignes) {
+        long t0 = System.nanoTime();
+        String c = compte == null ? this.compte : compte;
+        Dossier d = repo.current();
+        Proposal p = new Proposal();
+        List<Cand> cands = new ArrayList<>();
+        Set<Mov> taken = Collections.newSetFromMap(new IdentityHashMap<>());
+        long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+        for (int i = 0; i < lignes.size(); i++) {
+            long day = BankIndex.epochDay(lignes.get(i).getDate());
+            if (day == Long.MIN_VALUE || lignes.get(i).getMontant() == 0) continue;
+            first = Math.min(first, day); last = Math.max(last, day);
+            cands.addAll(best(d, c, i, lignes.get(i), day, taken, PER_LINE));
+        }
+        cands.sort(CLOSEST);
+
+        boolean[] done = new boolean[lignes.size()];
+        for (Cand x : cands) {
+            if (done[x.line] || taken.contains(x.mov)) continue;
+            done[x.line] = true; taken.add(x.mov);
+            p.paires.add(new Paire(x.line, lignes.get(x.line), x.mov, x.ecartJours));
+        }
+        // Lignes évincées: meilleur mouvement encore libre
+        for (int i = 0; i < lignes.size(); i++) {
+            long day = BankIndex.epochDay(lignes.get(i).getDate());
+            if (done[i] || day == Long.MIN_VALUE || lignes.get(i).getMontant() == 0) continue;
+            List<Cand> x = best(d, c, i, lignes.get(i), day, taken, 1);
+            if (x.isEmpty()) continue;
+            done[i] = true; taken.add(x.get(0).mov);
+            p.paires.add(new Paire(i, lignes.get(i), x.get(0).mov, x.get(0).ecartJours));
+        }
+        p.paires.sort(Comparator.comparingInt(Paire::getLigne));
+        for (int i = 0; i < lignes.size(); i++) if (!done[i]) p.lignesNonRapprochees.add(i);
+        if (first <= last) d.bankIndex().between(c, first, last, m -> { if (!taken.contains(m) && !d.reconciled().contains(m.ecriture.getId(), m.idx)) p.mouvementsNonRapproches.add(new Mouvement(m)); });
+        p.mouvementsNonRapproches.sort(Comparator.comparing(Mouvement::getDate).thenComparing(Mouvement::getEcritureId).thenComparingInt(Mouvement::getLigne));
+        p.tookMs = (System.nanoTime() - t0) / 1_000_000;
+        return p;
+    }
+
+    /**
+     * Enregistre les couples validés; un couple dont le mouvement n'existe plus (montant et date de l'écriture
+     * compris) ou est déjà pointé est rejeté, les autres sont enregistrés.
+     */
+    public Validation validate(String compte, String releve, List<Paire> paires) throws IOException {
+        String c = compte == null ? this.compte : compte;
+        Dossier d = repo.current();
+        return d.rapprochements().write(tx -> {
+            Validation v = new Validation();
+            String today = LocalDate.now().toString();
+            Set<String> seen = new HashSet<>();
+            List<Rapprochement> out = new ArrayList<>();
+            for (Paire p : paires) {
+                String ref = p.getEcritureId() + "#" + p.getLigneEcriture();
+                if (d.reconciled().contains(p.getEcritureId(), p.getLigneEcriture()) || !seen.add(ref)) { v.rejets.add(new Rejet(p.getLigne(), "already reconciled")); continue; }
+                if (!exists(d.bankIndex(), c, p, ref)) { v.rejets.add(new Rejet(p.getLigne(), "movement not found")); continue; }
+                Rapprochement r = new Rapprochement();
+                r.setId(d.sequences().nextId("RAP"));
+                r.setCompte(c); r.setReleve(releve);
+                r.setDate(p.getDate()); r.setLibelle(p.getLibelle()); r.setMontant(p.getMontant()); r.setReference(p.getReference());
+                r.setEcritureId(p.getEcritureId()); r.setLigne(p.getLigneEcriture());
+                r.setDateValidation(today);
+                out.add(r);
+            }
+            tx.addAll(out);
+            v.valides = out.size();
+            return v;
+        });
+    }
+
+    // Les k candidats les plus proches de la ligne parmi les mouvements non pointés et non pris
+    private List<Cand> best(Dossier d, String compte, int line, ReleveLigne l, long day, Set<Mov> taken, int k) {
+        List<Cand> out = new ArrayList<>(k + 1);
+        ReconciledIndex reconciled = d.reconciled();
+        d.bankIndex().scan(compte, l.getMontant(), tolerance, day, jours, m -> {
+            long em = Math.abs(m.amount - l.getMontant()), ej = Math.abs(m.day - day);
+            if (out.size() == k) {   // pas meilleur que le dernier gardé: à écarts égaux, le premier rencontré reste
+                Cand w = out.get(k - 1);
+                if (em > w.ecartMontant || (em == w.ecartMontant && ej >= w.ecartJours)) return;
+            }
+            if (taken.contains(m) || reconciled.contains(m.ecriture.getId(), m.idx)) return;
+            Cand x = new Cand(line, m, em, ej);
+            int at = out.size();
+            while (at > 0 && CLOSEST.compare(x, out.get(at - 1)) < 0) at--;
+            out.add(at, x);
+            if (out.size() > k) out.remove(k);
+        });
+        return out;
+    }
+
+    private static boolean exists(BankIndex index, String compte, Paire p, String ref) {
+        long day = BankIndex.epochDay(p.getDateEcriture());
+        if (day == Long.MIN_VALUE) return false;
+        boolean[] found = new boolean[1];
+        index.scan(compte, p.getMontantEcriture(), 0, day, 0, m -> found[0] |= m.ref().equals(ref));
+        return found[0];
+    }
+
+    private static final class Cand {
+        final int line;
+        final Mov mov;
+        final long ecartMontant;
+        final long ecartJours;
+        Cand(int line, Mov mov, long ecartMontant, long ecartJours) { this.line = line; this.mov = mov; this.ecartMontant = ecartMontant; this.ecartJours = ecartJours; }
+    }
+
+    public static class ReleveLigne {
+        private String date;
+        private String libelle;
+        @Money.Amount private long montant; // positif = crédit au relevé (encaissement), négatif = débit
+        private String reference;
+
+        // Getters
+        public String getDate() { return date; }
+        public String getLibelle() { return libelle; }
+        public long getMontant() { return montant; }
+        public String getReference() { return reference; }
+
+        // Setters
+        public void setDate(String date) { this.date = date; }
+        public void setLibelle(String libelle) { this.libelle = libelle; }
+        public void setMontant(long montant) { this.montant = montant; }
+        public void setReference(String reference) { this.reference = reference; }
+    }
+
+    public static class Paire {
+        private int ligne; // rang dans le relevé
+        private String date;
+        private String libelle;
+        @Money.Amount private long montant;
+        private String reference;
+        private String ecritureId;
+        private int ligneEcriture;
+        private String dateEcriture;
+        private String piece;
+        @Money.Amount private long montantEcriture;
+        private long ecartJours;
+
+        public Paire() {}
+
+        Paire(int ligne, ReleveLigne l, Mov m, long ecartJours) {
+            this.ligne = ligne; this.date = l.getDate(); this.libelle = l.getLibelle(); this.montant = l.getMontant(); this.reference = l.getReference();
+            this.ecritureId = m.ecriture.getId(); this.ligneEcriture = m.idx; this.dateEcriture = m.ecriture.getDate(); this.piece = m.ecriture.getPiece();
+            this.montantEcriture = m.amount; this.ecartJours = ecartJours;
+        }
+
+        // Getters
+        public int getLigne() { return ligne; }
+        public String getDate() { return date; }
+        public String getLibelle() { return libelle; }
+        public long getMontant() { return montant; }
+        public String getReference() { return reference; }
+        public String getEcritureId() { return ecritureId; }
+        public int getLigneEcriture() { return ligneEcriture; }
+        public String getDateEcriture() { return dateEcriture; }
+        public String getPiece() { return piece; }
+        public long getMontantEcriture() { return montantEcriture; }
+        public long getEcartJours() { return ecartJours; }
+
+        // Setters
+        public void setLigne(int ligne) { this.ligne = ligne; }
+        public void setDate(String date) { this.date = date; }
+        public void setLibelle(String libelle) { this.libelle = libelle; }
+        public void setMontant(long montant) { this.montant = montant; }
+        public void setReference(String reference) { this.reference = reference; }
+        public void setEcritureId(String ecritureId) { this.ecritureId = ecritureId; }
+        public void setLigneEcriture(int ligneEcriture) { this.ligneEcriture = ligneEcriture; }
+        public void setDateEcriture(String dateEcriture) { this.dateEcriture = dateEcriture; }
+        public void setPiece(String piece) { this.piece = piece; }
+        public void setMontantEcriture(long montantEcriture) { this.montantEcriture = montantEcriture; }
+        public void setEcartJours(long ecartJours) { this.ecartJours = ecartJours; }
+    }
+
+    public static class Mouvement {
+        private final String ecritureId;
+        private final int ligne;
+        private final String date;
+        private final String piece;
+        private final String libelle;
+        @Money.Amount private final long montant;
+
+        Mouvement(Mov m) {
+            this.ecritureId = m.ecriture.getId(); this.ligne = m.idx; this.date = m.ecriture.getDate();
+            this.piece = m.ecriture.getPiece(); this.libelle = m.ligne.getLibelle(); this.montant = m.amount;
+        }
+
+        // Getters
+        public String getEcritureId() { return ecritureId; }
+        public int getLigne() { return ligne; }
+        public String getDate() { return date; }
+        public String getPiece() { return piece; }
+        public String getLibelle() { return libelle; }
+        public long getMontant() { return montant; }
+    }
+
+    public static class Proposal {
+        private final List<Paire> paires = new ArrayList<>();
+        private final List<Integer> lignesNonRapprochees = new ArrayList<>();   // rangs dans le relevé
+        private final List<Mouvement> mouvementsNonRapproches = new ArrayList<>();
+        private long tookMs;
+
+        // Getters
+        public List<Paire> getPaires() { return paires; }
+        public List<Integer> getLignesNonRapprochees() { return lignesNonRapprochees; }
+        public List<Mouvement> getMouvementsNonRapproches() { return mouvementsNonRapproches; }
+        public long getTookMs() { return tookMs; }
+    }
+
+    public static class Rejet {
+        private final int ligne;
+        private final String error;
+
+        Rejet(int ligne, String error) { this.ligne = ligne; this.error = error; }
+
+        // Getters
+        public int getLigne() { return ligne; }
+        public String getError() { return error; }
+    }
+
+    public static class Validation {
+        private int valides;
+        private final List<Rejet> rejets = new ArrayList<>();
+
+        // Getters
+        public int getValides() { return valides; }
+        public List<Rejet> getRejets() { return rejets; }
+    }
+}
@@ -0,0 +1,461 @@
+package com.ecomptaia.rules;
+
+import com.ecomptaia.api.EcrituresController;
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+import com.ecomptaia.ledger.AccountTrie;
+import com.ecomptaia.ledger.TiersIndex;
+import com.ecomptaia.model.Tiers;
+import com.ecomptaia.store.CowList;
+import com.ecomptaia.store.DataRepository;
+import com.ecomptaia.store.Dossier;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Règles de validation des écritures, compilées une fois au démarrage depuis ecompta.validation.rules
+ * (copie de regles_validation_ecritures.json de la base de connaissances de l'assistant). Chaque règle connue
+ * devient un contrôle dont les paramètres (taux, correspondances, seuils, sens des classes) sont lus d'avance;
+ * les règles de conseil sans donnée vérifiable dans une écriture (CPT_003, TVA_003, sectorielles, OPT_*) sont ignorées.
+ * Une exception (EXC_*) retire ses règles d'une écriture quand toutes ses conditions sont remplies.
+ * Les règles bloquantes (ecompta.validation.blocking) sont appliquées à chaque ajout; revalidate() repasse
+ * tout le grand livre en parallèle, par tranches, sur le pool fork/join commun.
+ */
+@Component
+public class RuleEngine {
+    private static final Logger log = LoggerFactory.getLogger(RuleEngine.class);
+    private static final int SPLIT = 4096;   // écritures par tâche fork/join
+    private static final Pattern EQUALS = Pattern.compile("(\\w+)\\s*=\\s*'(.*)'");
+    private static final Pattern LIKE = Pattern.compile("(\\w+)\\s+LIKE\\s+'%(.*)%'", Pattern.CASE_INSENSITIVE);
+    // Comptes des catégories de seuils AUD_002 (SYSCOHADA): provisions et dépréciations, immobilisations, engagements hors bilan
+    private static final Map<String, String[]> SEUILS = new LinkedHashMap<>();
+    static {
+        SEUILS.put("provisions", new String[] { "19", "29", "39", "49", "59" });
+        SEUILS.put("immobilisations", new String[] { "2" });
+        SEUILS.put("engagements", new String[] { "9" });
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final List<String> skipped = new ArrayList<>();
+    private final List<Except> exceptions = new ArrayList<>();
+    private final Set<String> blocking;
+    private final String country;
+    private final LocalDate exerciceDebut;
+    private final LocalDate exerciceFin;
+    private final String closedUntil;
+    private final long tolerance;   // centimes
+
+    public RuleEngine(DataRepository repo,
+                      @Value("${ecompta.validation.rules:classpath:regles/regles_validation_ecritures.json}") Resource file,
+                      @Value("${ecompta.validation.blocking:REQ_001,REQ_002,DAT_003}") String[] blocking,
+                      @Value("${ecompta.validation.country:}") String country,
+                      @Value("${ecompta.validation.exercice-debut:}") String exerciceDebut,
+                      @Value("${ecompta.validation.exercice-fin:}") String exerciceFin,
+                      @Value("${ecompta.validation.closed-until:}") String closedUntil) {
+        JsonNode config;
+        try (InputStream in = file.getInputStream()) { config = repo.mapper().readTree(in); }
+        catch (IOException e) { throw new UncheckedIOException("cannot read validation rules " + file, e); }
+        this.blocking = new HashSet<>();
+        for (String b : blocking) if (!b.isBlank()) this.blocking.add(b.trim());
+        this.country = country.trim().toUpperCase(Locale.ROOT);
+        this.exerciceDebut = exerciceDebut.isBlank() ? null : LocalDate.parse(exerciceDebut.trim());
+        this.exerciceFin = exerciceFin.isBlank() ? null : LocalDate.parse(exerciceFin.trim());
+        this.closedUntil = closedUntil.trim();
+        this.tolerance = Math.round(config.path("parametres_validation").path("tolerance_calculs").asDouble(1) * 100);
+
+        // Règles: groupes "regles" et secteurs de regles_sectorielles, dans l'ordre du fichier
+        config.path("regles_validation_ecritures").forEach(group -> {
+            group.path("regles").forEach(this::compile);
+            group.path("secteurs").forEach(s -> s.path("regles").forEach(this::compile));
+        });
+        config.path("exceptions_autorisees").path("exceptions").forEach(this::compileException);
+        for (String b : this.blocking) if (rules.stream().noneMatch(r -> r.id.equals(b))) log.warn("Blocking rule {} is not evaluated", b);
+        log.info("Validation rules compiled: {} evaluated, {} advisory skipped {}", rules.size(), skipped.size(), skipped);
+
+    }
+
+    /** Tous les manquements de l'écriture, contrôlée contre le plan et les tiers du dossier. */
+    public List<Violation> validate(Dossier d, Ecriture e) { return run(d, e, false); }
+
+    /** Manquements aux seules règles bloquantes; vide = écriture acceptée. */
+    public List<Violation> blockingViolations(Dossier d, Ecriture e) { return run(d, e, true); }
+
+    private List<Violation> run(Dossier d, Ecriture e, boolean blockingOnly) {
+        List<Violation> out = new ArrayList<>(0);
+        Set<String> ignored = Set.of();
+        for (Except x : exceptions) if (x.when.test(e)) { if (ignored.isEmpty()) ignored = new HashSet<>(); ignored.addAll(x.ignored); }
+        for (Rule r : rules) {
+            if ((blockingOnly && !r.blocking) || ignored.contains(r.id)) continue;
+            r.check.run(d, e, r, out);
+        }
+        return out;
+    }
+
+    /** Revalide les écritures du dossier datées dans [from, to] (préfixes de dates, null = ouvert); au plus limit manquements détaillés. */
+    public Audit revalidate(Dossier d, String from, String to, int limit) {
+        long t0 = System.nanoTime();
+        CowList<Ecriture> items = d.ecritures().view();
+        Audit a = ForkJoinPool.commonPool().invoke(new Slice(d, items, 0, items.size(), from, to, limit));
+        a.tookMs = (System.nanoTime() - t0) / 1_000_000;
+        return a;
+    }
+
+    /** Règles évaluées (id, nom, sévérité, bloquante) et règles ignorées faute de contrôle possible. */
+    public Map<String, Object> describe() {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Rule r : rules) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", r.id); m.put("nom", r.name); m.put("severite", r.severite); m.put("bloquante", r.blocking);
+            items.add(m);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("regles", items); out.put("ignorees", skipped);
+        return out;
+    }
+
+    // Compilation
+
+    private void compile(JsonNode json) {
+        String id = json.path("id").asText();
+        Check c = check(id, json);
+        if (c == null) { skipped.add(id); return; }
+        String severite = json.hasNonNull("severite") ? json.get("severite").asText() : "avertissement".equals(json.path("type").asText()) ? "avertissement" : "info";
+        String message = firstText(json, "message_erreur", "message_avertissement", "message_info", "nom");
+        rules.add(new Rule(id, json.path("nom").asText(id), severite, message, blocking.contains(id), c));
+    }
+
+    private Check check(String id, JsonNode json) {
+        switch (id) {
+            case "REQ_001": return (dossier, e, r, out) -> {
+                if (EcrituresController.isBalanced(e)) return;
+                long d = 0, c = 0;
+                for (Ligne l : lignes(e)) { d += l.getDebit(); c += l.getCredit(); }
+                r.add(out, e, -1, null, "debit_total", units(d), "credit_total", units(c));
+            };
+            case "REQ_002": return (dossier, e, r, out) -> {
+                long total = 0;
+                for (Ligne l : lignes(e)) total += Math.abs(l.getDebit()) + Math.abs(l.getCredit());
+                if (total <= 0) r.add(out, e, -1, null);
+            };
+            case "CPT_001": return (dossier, e, r, out) -> {
+                AccountTrie accounts = dossier.accounts();
+                if (accounts.isEmpty()) return;   // plan non renseigné
+                List<Ligne> ls = lignes(e);
+                for (int i = 0; i < ls.size(); i++) if (!inPlan(accounts, ls.get(i).getCompte())) r.add(out, e, i, ls.get(i).getCompte(), "compte", ls.get(i).getCompte());
+            };
+            case "CPT_002": {
+                // Sens habituel par classe: 1 débiteur, -1 créditeur, 0 l'un ou l'autre
+                int[] sens = new int[10];
+                json.path("regles_specifiques").fields().forEachRemaining(f -> {
+                    String k = f.getKey();
+                    if (!k.matches("classe_[0-9]")) return;
+                    String t = f.getValue().asText().toLowerCase(Locale.ROOT);
+                    boolean deb = t.contains("débiteur"), cre = t.contains("créditeur");
+                    if (deb != cre) sens[k.charAt(7) - '0'] = deb ? 1 : -1;
+                });
+                return (dossier, e, r, out) -> {
+                    List<Ligne> ls = lignes(e);
+                    for (int i = 0; i < ls.size(); i++) {
+                        Ligne l = ls.get(i);
+                        int s = classe(l.getCompte()) < 0 ? 0 : sens[classe(l.getCompte())];
+                        if ((s == 1 && l.getCredit() > 0 && l.getDebit() == 0) || (s == -1 && l.getDebit() > 0 && l.getCredit() == 0))
+                            r.add(out, e, i, l.getCompte(), "compte", l.getCompte());
+                    }
+                };
+            }
+            case "TVA_001":
+            case "TVA_002": {
+                int[] allowed = rates(json.path("taux_autorises_par_pays").path(country));
+                if (allowed == null) return (dossier, e, r, out) -> {};   // pays non configuré ou sans taux connus
+                boolean amount = id.equals("TVA_002");
+                long tol = json.has("tolerance") ? Math.round(json.get("tolerance").asDouble() * 100) : tolerance;
+                return (dossier, e, r, out) -> {
+                    long base = 0, tva = 0;
+                    for (Ligne l : lignes(e)) {
+                        String c = l.getCompte();
+                        if (c == null) continue;
+                        if (c.startsWith("443") || c.startsWith("445")) tva += Math.abs(l.getDebit() - l.getCredit());
+                        else if (c.startsWith("2") || c.startsWith("6") || c.startsWith("7")) base += Math.abs(l.getDebit() - l.getCredit());
+                    }
+                    if (tva == 0 || base == 0) return;
+                    double pct = tva * 100.0 / base;
+                    int nearest = allowed[0];
+                    for (int t : allowed) if (Math.abs(pct - t) < Math.abs(pct - nearest)) nearest = t;
+                    boolean known = Math.abs(pct - nearest) <= 1;
+                    if (!amount && !known) r.add(out, e, -1, null, "taux", String.format(Locale.ROOT, "%.1f", pct), "pays", country);
+                    if (amount && known) {
+                        long expected = Math.round(base * nearest / 100.0);
+                        if (Math.abs(tva - expected) > tol) r.add(out, e, -1, null, "montant_attendu", units(expected), "montant_trouve", units(tva));
+                    }
+                };
+            }
+            case "TIE_001": {
+                Map<String, String> corr = new HashMap<>();
+                json.path("correspondances").fields().forEachRemaining(f -> corr.put(f.getKey(), f.getValue().asText().toUpperCase(Locale.ROOT)));
+                return (dossier, e, r, out) -> {
+                    TiersIndex tiers = dossier.tiersIndex();
+                    if (tiers.isEmpty()) return;
+                    List<Ligne> ls = lignes(e);
+                    for (int i = 0; i < ls.size(); i++) {
+                        Ligne l = ls.get(i);
+                        if (l.getTiersId() == null || l.getCompte() == null) continue;
+                        Tiers t = tiers.find(l.getTiersId());
+                        String type = t == null || t.getType() == null ? null : t.getType().toUpperCase(Locale.ROOT);
+                        if (!"CLIENT".equals(type) && !"FOURNISSEUR".equals(type)) continue;
+                        String expected = correspondance(corr, l.getCompte());
+                        if (expected != null && !expected.equals(type)) r.add(out, e, i, l.getCompte(), "compte", l.getCompte(), "type_tiers", type);
+                    }
+                };
+            }
+            case "TIE_002": return (dossier, e, r, out) -> {
+                TiersIndex tiers = dossier.tiersIndex();
+                if (tiers.isEmpty()) return;   // tiers non renseignés
+                List<Ligne> ls = lignes(e);
+                for (int i = 0; i < ls.size(); i++) {
+                    String t = ls.get(i).getTiersId();
+                    if (t != null && tiers.find(t) == null) r.add(out, e, i, ls.get(i).getCompte(), "code_tiers", t);
+                }
+            };
+            case "DAT_001": return (dossier, e, r, out) -> {
+                LocalDate d = date(e.getDate());
+                if (d == null || (exerciceDebut != null && d.isBefore(exerciceDebut)) || (exerciceFin != null && d.isAfter(exerciceFin)))
+                    r.add(out, e, -1, null, "date", String.valueOf(e.getDate()));
+            };
+            case "DAT_002": return (dossier, e, r, out) -> {
+                LocalDate d = date(e.getDate());
+                if (d != null && d.isAfter(LocalDate.now())) r.add(out, e, -1, null, "date", e.getDate());
+            };
+            case "DAT_003": return (dossier, e, r, out) -> {
+                if (e.getDate() == null) return;
+                // date limite configurée, ou période close du dossier
+                if ((!closedUntil.isEmpty() && e.getDate().compareTo(closedUntil) <= 0) || dossier.closures().closed(e.getDate())) r.add(out, e, -1, null, "date", e.getDate());
+            };
+            case "AUD_001": return (dossier, e, r, out) -> {
+                List<Ligne> ls = lignes(e);
+                for (int i = 0; i < ls.size(); i++) if (!audcif(ls.get(i).getCompte())) r.add(out, e, i, ls.get(i).getCompte(), "compte", String.valueOf(ls.get(i).getCompte()));
+            };
+            case "AUD_002": {
+                List<String[]> prefixes = new ArrayList<>();
+                List<Long> limits = new ArrayList<>();
+                SEUILS.forEach((k, p) -> { if (json.path("seuils").has(k)) { prefixes.add(p); limits.add(Math.round(json.path("seuils").get(k).asDouble() * 100)); } });
+                return (dossier, e, r, out) -> {
+                    List<Ligne> ls = lignes(e);
+                    for (int i = 0; i < ls.size(); i++) {
+                        Ligne l = ls.get(i);
+                        if (l.getCompte() == null) continue;
+                        for (int k = 0; k < prefixes.size(); k++) {
+                            if (!startsWithAny(l.getCompte(), prefixes.get(k))) continue;
+                            if (Math.max(Math.abs(l.getDebit()), Math.abs(l.getCredit())) >= limits.get(k)) r.add(out, e, i, l.getCompte(), "compte", l.getCompte());
+                            break;
+                        }
+                    }
+                };
+            }
+            default: return null;
+        }
+    }
+
+    private void compileException(JsonNode json) {
+        Set<String> ignored = new HashSet<>();
+        json.path("regles_ignorees").forEach(n -> ignored.add(n.asText()));
+        Predicate<Ecriture> when = e -> true;
+        for (JsonNode c : json.path("conditions")) when = when.and(condition(json.path("id").asText(), c.asText()));
+        if (!ignored.isEmpty()) exceptions.add(new Except(ignored, when));
+    }
+
+    // Conditions reconnues: journal = 'X', libelle LIKE '%x%'; toute autre condition n'est jamais remplie
+    private static Predicate<Ecriture> condition(String exception, String text) {
+        Matcher m = EQUALS.matcher(text.trim());
+        if (m.matches() && m.group(1).equals("journal")) { String j = m.group(2); return e -> j.equalsIgnoreCase(e.getJournalCode()); }
+        m = LIKE.matcher(text.trim());
+        if (m.matches() && m.group(1).equals("libelle")) {
+            String s = m.group(2).toLowerCase(Locale.ROOT);
+            return e -> { for (Ligne l : lignes(e)) if (l.getLibelle() != null && l.getLibelle().toLowerCase(Locale.ROOT).contains(s)) return true; return false; };
+        }
+        log.info("Exception {}: condition \"{}\" not supported, never satisfied", exception, text);
+        return e -> false;
+    }
+
+    // Helpers
+
+    private static List<Ligne> lignes(Ecriture e) { return e.getLignes() == null ? List.of() : e.getLignes(); }
+
+    private static String units(long cents) { return BigDecimal.valueOf(cents, 2).toPlainString(); }
+
+    private static int classe(String compte) {
+        if (compte == null || compte.isEmpty()) return -1;
+        char c = compte.charAt(0);
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+
+    // Compte du plan ou sous-compte d'un compte du plan (préfixe d'au moins 2 caractères)
+    private static boolean inPlan(AccountTrie accounts, String compte) {
+        if (compte == null) return false;
+        return accounts.nearest(compte, 2) != null;
+    }
+
+    // Classification AUDCIF: numérique, classe 1 à 9, au moins 2 chiffres
+    private static boolean audcif(String compte) {
+        if (compte == null || compte.length() < 2 || compte.charAt(0) < '1' || compte.charAt(0) > '9') return false;
+        for (int i = 1; i < compte.length(); i++) if (compte.charAt(i) < '0' || compte.charAt(i) > '9') return false;
+        return true;
+    }
+
+    // Type de tiers attendu: correspondance la plus longue préfixe du compte, ou compte général (>= 3 car.) d'une correspondance détaillée
+    private static String correspondance(Map<String, String> corr, String compte) {
+        String best = null; int len = -1;
+        for (Map.Entry<String, String> c : corr.entrySet()) {
+            String k = c.getKey();
+            if ((compte.startsWith(k) || (compte.length() >= 3 && k.startsWith(compte))) && k.length() > len) { best = c.getValue(); len = k.length(); }
+        }
+        return best;
+    }
+
+    private static int[] rates(JsonNode n) {
+        if (n == null || !n.isArray() || n.isEmpty()) return null;
+        int[] r = new int[n.size()];
+        for (int i = 0; i < r.length; i++) r[i] = n.get(i).asInt();
+        return r;
+    }
+
+    private static LocalDate date(String s) {
+        if (s == null) return null;
+        try { return LocalDate.parse(s); } catch (DateTimeParseException ex) { return null; }
+    }
+
+    private static boolean startsWithAny(String s, String[] prefixes) {
+        for (String p : prefixes) if (s.startsWith(p)) return true;
+        return false;
+    }
+
+    private static String firstText(JsonNode json, String... fields) {
+        for (String f : fields) if (json.hasNonNull(f)) return json.get(f).asText();
+        return "";
+    }
+
+    @FunctionalInterface
+    private interface Check { void run(Dossier dossier, Ecriture e, Rule r, List<Violation> out); }
+
+    private static final class Rule {
+        final String id;
+        final String name;
+        final String severite;
+        final String message;
+        final boolean blocking;
+        final Check check;
+
+        Rule(String id, String name, String severite, String message, boolean blocking, Check check) {
+            this.id = id; this.name = name; this.severite = severite; this.message = message; this.blocking = blocking; this.check = check;
+        }
+
+        // vars: paires nom / valeur remplaçant les {nom} du message
+        void add(List<Violation> out, Ecriture e, int ligne, String compte, String... vars) {
+            String m = message;
+            for (int i = 0; i + 1 < vars.length; i += 2) m = m.replace("{" + vars[i] + "}", vars[i + 1]);
+            out.add(new Violation(id, severite, m, e.getId(), e.getPiece(), ligne, compte));
+        }
+    }
+
+    private static final class Except {
+        final Set<String> ignored;
+        final Predicate<Ecriture> when;
+        Except(Set<String> ignored, Predicate<Ecriture> when) { this.ignored = ignored; this.when = when; }
+    }
+
+    // Tranche [lo, hi) du grand livre, coupée en deux tant qu'elle dépasse SPLIT écritures
+    private final class Slice extends RecursiveTask<Audit> {
+        private static final long serialVersionUID = 1L;
+
+        final Dossier dossier;
+        final CowList<Ecriture> items;
+        final int lo, hi;
+        final String from, to;
+        final int limit;
+
+        Slice(Dossier dossier, CowList<Ecriture> items, int lo, int hi, String from, String to, int limit) {
+            this.dossier = dossier; this.items = items; this.lo = lo; this.hi = hi; this.from = from; this.to = to; this.limit = limit;
+        }
+
+        @Override
+        protected Audit compute() {
+            if (hi - lo > SPLIT) {
+                int mid = (lo + hi) >>> 1;
+                Slice left = new Slice(dossier, items, lo, mid, from, to, limit);
+                left.fork();
+                Audit right = new Slice(dossier, items, mid, hi, from, to, limit).compute();
+                return left.join().merge(right, limit);
+            }
+            Audit a = new Audit();
+            for (int i = lo; i < hi; i++) {
+                Ecriture e = items.get(i);
+                String d = e.getDate();
+                if (from != null && (d == null || d.compareTo(from) < 0)) continue;
+                if (to != null && (d == null || d.substring(0, Math.min(d.length(), to.length())).compareTo(to) > 0)) continue;
+                a.checked++;
+                List<Violation> v = validate(dossier, e);
+                if (v.isEmpty()) continue;
+                a.invalid++;
+                for (Violation x : v) {
+                    a.byRule.merge(x.getRegle(), 1L, Long::sum);
+                    if (a.violations.size() < limit) a.violations.add(x); else a.truncated = true;
+                }
+            }
+            return a;
+        }
+    }
+
+    /** Résultat d'une revalidation: écritures contrôlées / en défaut, manquements par règle, premiers manquements. */
+    public static class Audit {
+        private long checked;
+        private long invalid;
+        private final Map<String, Long> byRule = new TreeMap<>();
+        private final List<Violation> violations = new ArrayList<>();
+        private boolean truncated;
+        private long tookMs;
+
+        // Fusion dans l'ordre du grand livre: this précède other
+        Audit merge(Audit other, int limit) {
+            checked += other.checked; invalid += other.invalid;
+            other.byRule.forEach((k, v) -> byRule.merge(k, v, Long::sum));
+            for (Violation v : other.violations) if (violations.size() < limit) violations.add(v); else truncated = true;
+            truncated |= other.truncated;
+            return this;
+        }
+
+        // Getters
+        public long getChecked() { return checked; }
+        public long getInvalid() { return invalid; }
+        public Map<String, Long> getByRule() { return byRule; }
+        public List<Violation> getViolations() { return violations; }
+        public boolean isTruncated() { return truncated; }
+        public long getTookMs() { return tookMs; }
+    }
+
+    /** Ajout refusé par une règle bloquante. */
+    public static class Rejected extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Violation> violations;
+
+        public Rejected(List<Violation> violations) { super(violations.get(0).getMessage()); this.violations = List.copyOf(violations); }
+
+        public List<Violation> getViolations() { return violations; }
+    }
+}
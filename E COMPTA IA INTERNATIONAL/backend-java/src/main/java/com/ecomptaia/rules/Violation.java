@@ -0,0 +1,26 @@
+package com.ecomptaia.rules;
+
+/** Manquement d'une écriture (ou d'une de ses lignes, ligne >= 0) à une règle de validation. */
+public class Violation {
+    private final String regle;
+    private final String severite;
+    private final String message;
+    private final String ecritureId;
+    private final String piece;
+    private final int ligne;
+    private final String compte;
+
+    public Violation(String regle, String severite, String message, String ecritureId, String piece, int ligne, String compte) {
+        this.regle = regle; this.severite = severite; this.message = message;
+        this.ecritureId = ecritureId; this.piece = piece; this.ligne = ligne; this.compte = compte;
+    }
+
+    // Getters
+    public String getRegle() { return regle; }
+    public String getSeverite() { return severite; }
+    public String getMessage() { return message; }
+    public String getEcritureId() { return ecritureId; }
+    public String getPiece() { return piece; }
+    public int getLigne() { return ligne; }
+    public String getCompte() { return compte; }
+}
@@ -0,0 +1,383 @@
+package com.ecomptaia.store;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.EcrituresController.Ligne;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Archive en colonnes des écritures d'un exercice clos, lue par projection mémoire (hors tas).
+ * Toutes les chaînes (dates, journaux, comptes, tiers, libellés, ids) passent par un dictionnaire trié
+ * (octets UTF-8, ordre non signé): comparer deux indices revient à comparer les chaînes, une plage de dates
+ * ou un préfixe de compte devient une plage d'entiers. Les colonnes sont des tableaux primitifs gros-boutistes:
+ * <pre>
+ * en-tête   int magic, version, du, au, nbChaines, nbEcritures, nbLignes, octetsDico
+ * dico      int[nbChaines+1] positions, byte[octetsDico] (puis alignement sur 8)
+ * écritures int[] id, date, journal, piece, reference; int[] ids triés
+ * lignes    int[] ecriture, rang, date, compte, tiers, libelle (alignement sur 8); long[] debit, credit
+ * </pre>
+ * Les lignes sont triées par (compte, date, écriture, rang): un compte ou un préfixe est une plage contiguë,
+ * chronologique compte par compte. -1 = absent. Le fichier est écrit une fois (temporaire puis renommage), jamais modifié.
+ */
+public final class ColumnArchive implements Closeable {
+    private static final int MAGIC = 0x45434152; // "ECAR"
+    private static final int VERSION = 1;
+    private static final int HEADER = 8 * 4;
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer dict;
+    private final IntBuffer offsets;
+    private final IntBuffer eId, eDate, eJournal, ePiece, eRef, idsSorted;
+    private final IntBuffer lEntry, lIdx, lDate, lCompte, lTiers, lLibelle;
+    private final LongBuffer lDebit, lCredit;
+    private final int strings, entries, lines;
+    private final String du, au;
+
+    private ColumnArchive(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) throw new IOException("archive too large: " + file);
+        ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size < HEADER || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) throw new IOException("not a ledger archive: " + file);
+        strings = buf.getInt(16); entries = buf.getInt(20); lines = buf.getInt(24);
+        int dictBytes = buf.getInt(28);
+        int pos = HEADER;
+        offsets = ints(buf, pos, strings + 1); pos += (strings + 1) * 4;
+        dict = buf.slice(pos, dictBytes); pos = align(pos + dictBytes);
+        eId = ints(buf, pos, entries); pos += entries * 4;
+        eDate = ints(buf, pos, entries); pos += entries * 4;
+        eJournal = ints(buf, pos, entries); pos += entries * 4;
+        ePiece = ints(buf, pos, entries); pos += entries * 4;
+        eRef = ints(buf, pos, entries); pos += entries * 4;
+        idsSorted = ints(buf, pos, entries); pos += entries * 4;
+        lEntry = ints(buf, pos, lines); pos += lines * 4;
+        lIdx = ints(buf, pos, lines); pos += lines * 4;
+        lDate = ints(buf, pos, lines); pos += lines * 4;
+        lCompte = ints(buf, pos, lines); pos += lines * 4;
+        lTiers = ints(buf, pos, lines); pos += lines * 4;
+        lLibelle = ints(buf, pos, lines); pos = align(pos + lines * 4);
+        lDebit = buf.slice(pos, lines * 8).asLongBuffer(); pos += lines * 8;
+        lCredit = buf.slice(pos, lines * 8).asLongBuffer(); pos += lines * 8;
+        if (pos != size) throw new IOException("truncated ledger archive: " + file);
+        du = string(buf.getInt(8)); au = string(buf.getInt(12));
+    }
+
+    public static ColumnArchive open(File file) throws IOException { return new ColumnArchive(file); }
+
+    /** Écrit l'archive des écritures de l'exercice du..au (yyyy-MM); remplace atomiquement un fichier existant. */
+    public static void write(File file, String du, String au, List<Ecriture> items) throws IOException {
+        // Dictionnaire trié de toutes les chaînes
+        Map<String, byte[]> utf8 = new HashMap<>();
+        utf8.put(du, du.getBytes(StandardCharsets.UTF_8));
+        utf8.put(au, au.getBytes(StandardCharsets.UTF_8));
+        int n = 0;
+        for (Ecriture e : items) {
+            for (String s : new String[]{e.getId(), date(e), e.getJournalCode(), e.getPiece(), e.getReference()}) intern(utf8, s);
+            if (e.getLignes() == null) continue;
+            for (Ligne l : e.getLignes()) {
+                if (l.getCompte() == null) continue;
+                intern(utf8, l.getCompte()); intern(utf8, l.getTiersId()); intern(utf8, l.getLibelle());
+                n++;
+            }
+        }
+        List<Map.Entry<String, byte[]>> sorted = new ArrayList<>(utf8.entrySet());
+        sorted.sort((a, b) -> Arrays.compareUnsigned(a.getValue(), b.getValue()));
+        Map<String, Integer> code = new HashMap<>(sorted.size() * 2);
+        int dictBytes = 0;
+        for (int i = 0; i < sorted.size(); i++) { code.put(sorted.get(i).getKey(), i); dictBytes += sorted.get(i).getValue().length; }
+
+        // Lignes triées par (compte, date, écriture, rang)
+        long[] keys = new long[n];
+        int[][] cols = new int[6][n];
+        long[] debit = new long[n], credit = new long[n];
+        int k = 0;
+        for (int ei = 0; ei < items.size(); ei++) {
+            Ecriture e = items.get(ei);
+            if (e.getLignes() == null) continue;
+            int d = code(code, date(e));
+            for (int li = 0; li < e.getLignes().size(); li++) {
+                Ligne l = e.getLignes().get(li);
+                if (l.getCompte() == null) continue;
+                cols[0][k] = ei; cols[1][k] = li; cols[2][k] = d; cols[3][k] = code.get(l.getCompte());
+                cols[4][k] = code(code, l.getTiersId()); cols[5][k] = code(code, l.getLibelle());
+                debit[k] = l.getDebit(); credit[k] = l.getCredit();
+                k++;
+            }
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int c = Integer.compare(cols[3][a], cols[3][b]);
+            if (c == 0) c = Integer.compare(cols[2][a], cols[2][b]);
+            if (c == 0) c = Integer.compare(cols[0][a], cols[0][b]);
+            return c != 0 ? c : Integer.compare(cols[1][a], cols[1][b]);
+        });
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            for (int v : new int[]{MAGIC, VERSION, code.get(du), code.get(au), sorted.size(), items.size(), n, dictBytes}) out.writeInt(v);
+            int off = 0;
+            for (Map.Entry<String, byte[]> s : sorted) { out.writeInt(off); off += s.getValue().length; }
+            out.writeInt(off);
+            for (Map.Entry<String, byte[]> s : sorted) out.write(s.getValue());
+            pad(out);
+            int[] ids = new int[items.size()];
+            for (int ei = 0; ei < items.size(); ei++) ids[ei] = code(code, items.get(ei).getId());
+            for (int v : ids) out.writeInt(v);
+            for (Ecriture e : items) out.writeInt(code(code, date(e)));
+            for (Ecriture e : items) out.writeInt(code(code, e.getJournalCode()));
+            for (Ecriture e : items) out.writeInt(code(code, e.getPiece()));
+            for (Ecriture e : items) out.writeInt(code(code, e.getReference()));
+            Arrays.sort(ids);
+            for (int v : ids) out.writeInt(v);
+            for (int[] col : cols) for (Integer i : order) out.writeInt(col[i]);
+            pad(out);
+            for (Integer i : order) out.writeLong(debit[i]);
+            for (Integer i : order) out.writeLong(credit[i]);
+        }
+        try (FileChannel ch = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) { ch.force(true); }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public File file() { return file; }
+    /** Premier et dernier mois archivés (yyyy-MM). */
+    public String du() { return du; }
+    public String au() { return au; }
+    public int entries() { return entries; }
+    public int lines() { return lines; }
+
+    /** Vrai si la date (yyyy-MM...) tombe dans les mois archivés. */
+    public boolean covers(String date) {
+        if (date == null || date.length() < 7) return false;
+        String m = date.substring(0, 7);
+        return m.compareTo(du) >= 0 && m.compareTo(au) <= 0;
+    }
+
+    /** Vrai si l'écriture id est archivée ici. */
+    public boolean contains(String id) {
+        int k = find(id);
+        if (k < 0) return false;
+        int lo = 0, hi = entries;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int v = idsSorted.get(mid);
+            if (v == k) return true;
+            if (v < k) lo = mid + 1; else hi = mid;
+        }
+        return false;
+    }
+
+    /** Identifiants des écritures archivées, dans l'ordre du fichier. */
+    public void forEachId(Consumer<String> fn) {
+        for (int k = 0; k < entries; k++) { String id = string(eId.get(k)); if (id != null) fn.accept(id); }
+    }
+
+    /** Indice de la première chaîne du dictionnaire >= s (0 si s est null). */
+    public int lowerBound(String s) { return s == null ? 0 : lowerBound(s.getBytes(StandardCharsets.UTF_8)); }
+
+    /** Indice suivant toutes les chaînes commençant par prefix (fin du dictionnaire si null). */
+    public int upperBound(String prefix) {
+        if (prefix == null) return strings;
+        byte[] b = prefix.getBytes(StandardCharsets.UTF_8);
+        byte[] hi = Arrays.copyOf(b, b.length + 1);
+        hi[b.length] = (byte) 0xFF; // aucun octet UTF-8 ne vaut 0xFF
+        return lowerBound(hi);
+    }
+
+    /**
+     * Cumuls débit / crédit par compte des lignes datées dans [dateLo, dateHi) (indices du dictionnaire),
+     * dans l'ordre des comptes. Un seul passage séquentiel sur les colonnes compte, date, débit, crédit.
+     */
+    public void totals(int dateLo, int dateHi, TotalsConsumer out) {
+        if (dateLo >= dateHi) return;
+        int cur = -1;
+        long d = 0, c = 0;
+        boolean any = false;
+        for (int i = 0; i < lines; i++) {
+            int date = lDate.get(i);
+            if (date < dateLo || date >= dateHi) continue;
+            int compte = lCompte.get(i);
+            if (compte != cur) {
+                if (any) out.accept(string(cur), d, c);
+                cur = compte; d = 0; c = 0; any = true;
+            }
+            d += lDebit.get(i); c += lCredit.get(i);
+        }
+        if (any) out.accept(string(cur), d, c);
+    }
+
+    /**
+     * Lignes du compte (prefix: et de ses sous-comptes) datées dans [dateLo, dateHi), parcourues dans l'ordre
+     * (date, écriture, rang) par fusion des plages chronologiques de chaque compte.
+     */
+    public Cursor cursor(String compte, boolean prefix, int dateLo, int dateHi) {
+        int cLo, cHi;
+        if (prefix) { cLo = lowerBound(compte); cHi = upperBound(compte); }
+        else { cLo = find(compte); cHi = cLo < 0 ? -1 : cLo + 1; }
+        List<int[]> runs = new ArrayList<>();
+        if (cLo >= 0 && dateLo < dateHi) {
+            int end = firstLine(0, lines, lCompte, cHi);
+            for (int s = firstLine(0, lines, lCompte, cLo); s < end; ) {
+                int e = firstLine(s, end, lCompte, lCompte.get(s) + 1);
+                int a = firstLine(s, e, lDate, dateLo), b = firstLine(a, e, lDate, dateHi);
+                if (a < b) runs.add(new int[]{a, b});
+                s = e;
+            }
+        }
+        return new Cursor(runs);
+    }
+
+    // Première position de [lo, hi) dont la valeur (colonne triée sur la plage) est >= v
+    private static int firstLine(int lo, int hi, IntBuffer col, int v) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (col.get(mid) < v) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private int find(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        int k = lowerBound(b);
+        return k < strings && compare(k, b) == 0 ? k : -1;
+    }
+
+    private int lowerBound(byte[] b) {
+        int lo = 0, hi = strings;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, b) < 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // Compare la chaîne k du dictionnaire à b, octet par octet (non signé), sans la décoder
+    private int compare(int k, byte[] b) {
+        int from = offsets.get(k), len = offsets.get(k + 1) - from;
+        for (int i = 0, n = Math.min(len, b.length); i < n; i++) {
+            int c = Integer.compare(dict.get(from + i) & 0xFF, b[i] & 0xFF);
+            if (c != 0) return c;
+        }
+        return Integer.compare(len, b.length);
+    }
+
+    private String string(int k) {
+        if (k < 0) return null;
+        int from = offsets.get(k);
+        byte[] b = new byte[offsets.get(k + 1) - from];
+        dict.get(from, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException { channel.close(); }
+
+    @FunctionalInterface
+    public interface TotalsConsumer { void accept(String compte, long debit, long credit); }
+
+    /** Parcours ordonné; les chaînes ne sont décodées qu'à la demande, pour la ligne courante. */
+    public final class Cursor {
+        private final int[] pos, end;
+        private final int[] heap;   // plages non épuisées, tas min sur la ligne courante de chacune
+        private int size;
+        private int line = -1;
+        private final long count;
+
+        private Cursor(List<int[]> runs) {
+            pos = new int[runs.size()]; end = new int[runs.size()]; heap = new int[runs.size()];
+            long n = 0;
+            for (int r = 0; r < runs.size(); r++) { pos[r] = runs.get(r)[0]; end[r] = runs.get(r)[1]; n += end[r] - pos[r]; }
+            count = n;
+            for (int r = 0; r < pos.length; r++) { heap[size++] = r; up(size - 1); }
+        }
+
+        /** Nombre de lignes de la plage. */
+        public long count() { return count; }
+
+        /** Solde (débit - crédit) de toutes les lignes de la plage, sans les ordonner. */
+        public long sum() {
+            long s = 0;
+            for (int r = 0; r < pos.length; r++) for (int i = pos[r]; i < end[r]; i++) s += lDebit.get(i) - lCredit.get(i);
+            return s;
+        }
+
+        /** Passe à la ligne suivante; false en fin de plage. */
+        public boolean next() {
+            if (size == 0) return false;
+            int r = heap[0];
+            line = pos[r]++;
+            if (pos[r] == end[r]) heap[0] = heap[--size];
+            down(0);
+            return true;
+        }
+
+        public long amount() { return lDebit.get(line) - lCredit.get(line); }
+        public long debit() { return lDebit.get(line); }
+        public long credit() { return lCredit.get(line); }
+        public String date() { return string(lDate.get(line)); }
+        public String compte() { return string(lCompte.get(line)); }
+        public String tiersId() { return string(lTiers.get(line)); }
+        public String libelle() { return string(lLibelle.get(line)); }
+        public String ecritureId() { return string(eId.get(lEntry.get(line))); }
+        public String journalCode() { return string(eJournal.get(lEntry.get(line))); }
+        public String piece() { return string(ePiece.get(lEntry.get(line))); }
+        public String reference() { return string(eRef.get(lEntry.get(line))); }
+
+        private boolean less(int a, int b) {
+            int x = pos[a], y = pos[b];
+            int c = Integer.compare(lDate.get(x), lDate.get(y));
+            if (c == 0) c = Integer.compare(lEntry.get(x), lEntry.get(y));
+            if (c == 0) c = Integer.compare(lIdx.get(x), lIdx.get(y));
+            return c < 0;
+        }
+
+        private void up(int i) {
+            while (i > 0) {
+                int p = (i - 1) / 2;
+                if (!less(heap[i], heap[p])) return;
+                int t = heap[i]; heap[i] = heap[p]; heap[p] = t; i = p;
+            }
+        }
+
+        private void down(int i) {
+            while (true) {
+                int l = 2 * i + 1, m = i;
+                if (l < size && less(heap[l], heap[m])) m = l;
+                if (l + 1 < size && less(heap[l + 1], heap[m])) m = l + 1;
+                if (m == i) return;
+                int t = heap[i]; heap[i] = heap[m]; heap[m] = t; i = m;
+            }
+        }
+    }
+
+    private static String date(Ecriture e) { return e.getDate() == null ? "" : e.getDate(); }
+
+    private static void intern(Map<String, byte[]> utf8, String s) {
+        if (s != null) utf8.computeIfAbsent(s, x -> x.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int code(Map<String, Integer> code, String s) { return s == null ? -1 : code.get(s); }
+
+    private static IntBuffer ints(ByteBuffer buf, int pos, int n) { return buf.slice(pos, n * 4).asIntBuffer(); }
+
+    private static int align(int pos) { return (pos + 7) & ~7; }
+
+    private static void pad(DataOutputStream out) throws IOException { while (out.size() % 8 != 0) out.writeByte(0); }
+}
@@ -0,0 +1,94 @@
+package com.ecomptaia.store;
+
+import java.util.*;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Vue immuable d'un jeu de données. Les ajouts en fin de liste partagent le tableau sous-jacent
+ * (la nouvelle version voit un élément de plus, les anciennes versions n'en voient rien), ce qui rend
+ * l'append O(1) amorti; les suppressions et remplacements recopient le tableau.
+ * Un seul écrivain (le thread du Dataset) dérive de nouvelles versions, toujours à partir de la dernière.
+ * Chaque élément porte un ordinal croissant (ordre d'insertion), stable malgré les suppressions:
+ * il sert de curseur de pagination et de clé aux index.
+ */
+public final class CowList<T> extends AbstractList<T> implements RandomAccess {
+    private static final CowList<?> NONE = new CowList<>(new Object[0], new long[0], 0);
+
+    private final Object[] items;
+    private final long[] ords;
+    private final int size;
+
+    private CowList(Object[] items, long[] ords, int size) { this.items = items; this.ords = ords; this.size = size; }
+
+    @SuppressWarnings("unchecked")
+    public static <T> CowList<T> empty() { return (CowList<T>) NONE; }
+
+    static <T> CowList<T> of(Collection<? extends T> c, long firstOrd) {
+        Object[] arr = c.toArray();
+        long[] o = new long[arr.length];
+        for (int i = 0; i < o.length; i++) o[i] = firstOrd + i;
+        return new CowList<>(arr, o, arr.length);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        return (T) items[index];
+    }
+
+    @Override
+    public int size() { return size; }
+
+    public long ordinal(int index) {
+        Objects.checkIndex(index, size);
+        return ords[index];
+    }
+
+    /** Position du premier élément d'ordinal strictement supérieur à ord. */
+    public int indexAfter(long ord) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ords[mid] <= ord) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    CowList<T> append(T item, long ord) {
+        Object[] arr = items;
+        long[] o = ords;
+        if (size == arr.length) {
+            int cap = Math.max(16, size + (size >> 1));
+            arr = Arrays.copyOf(arr, cap); o = Arrays.copyOf(o, cap);
+        }
+        arr[size] = item; o[size] = ord;
+        return new CowList<>(arr, o, size + 1);
+    }
+
+    CowList<T> with(int index, T item) {
+        Objects.checkIndex(index, size);
+        Object[] arr = Arrays.copyOf(items, size);
+        arr[index] = item;
+        return new CowList<>(arr, Arrays.copyOf(ords, size), size);
+    }
+
+    @SuppressWarnings("unchecked")
+    CowList<T> removeIf(Predicate<? super T> p, ObjLongConsumer<T> removed) {
+        Object[] arr = null;
+        long[] o = null;
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            T t = (T) items[i];
+            if (p.test(t)) {
+                if (arr == null) {
+                    arr = new Object[size - 1]; o = new long[size - 1];
+                    System.arraycopy(items, 0, arr, 0, i); System.arraycopy(ords, 0, o, 0, i); n = i;
+                }
+                removed.accept(t, ords[i]);
+            } else if (arr != null) { arr[n] = t; o[n++] = ords[i]; }
+        }
+        return arr == null ? this : new CowList<>(arr, o, n);
+    }
+}
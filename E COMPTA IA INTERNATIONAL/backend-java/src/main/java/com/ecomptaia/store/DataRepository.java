@@ -0,0 +1,204 @@
+package com.ecomptaia.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.Pattern;
+
+/**
+ * Point d'accès aux dossiers (sociétés clientes): un ObjectMapper et un flusher partagés, un Dossier (jeux de
+ * données et index) par société. Le dossier par défaut est data/, les autres data/dossiers/&lt;id&gt;/. Un dossier
+ * est chargé au premier accès; quand la mémoire estimée des dossiers chargés dépasse ecompta.dossiers.memory-budget-mb,
+ * les moins récemment utilisés sans bail en cours sont fermés. Le dossier de la requête (en-tête X-Dossier, voir
+ * DossierFilter) est lié au thread qui la traite: current().
+ */
+@Component
+public class DataRepository {
+    private static final Logger log = LoggerFactory.getLogger(DataRepository.class);
+    public static final String DEFAULT = "";
+    private static final Pattern ID = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_-]{0,63}");
+    private static final ThreadLocal<Dossier> CURRENT = new ThreadLocal<>();
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> { Thread t = new Thread(r, "dataset-flusher"); t.setDaemon(true); return t; });
+    private final File dataDir;
+    private final File dossiersDir;
+    private final long budgetBytes;
+    private final Settings settings;
+    private final Map<String, Dossier> open = new HashMap<>();      // sous verrou this
+    private final Map<String, Dossier> closing = new HashMap<>();   // sous verrou this
+
+    public DataRepository(@Value("${ecompta.data-dir:data}") String dataDir,
+                          @Value("${ecompta.store.flush-delay-ms:200}") long flushDelayMs,
+                          @Value("${ecompta.ledger.fsync:true}") boolean fsync,
+                          @Value("${ecompta.ledger.snapshot-every:10000}") int snapshotEvery,
+                          @Value("${ecompta.ledger.checkpoint-every:1000}") int checkpointEvery,
+                          @Value("${ecompta.rapprochement.comptes:512}") String bankAccounts,
+                          @Value("${ecompta.dossiers.dir:dossiers}") String dossiersDir,
+                          @Value("${ecompta.dossiers.memory-budget-mb:1024}") long budgetMb,
+                          @Value("${ecompta.sequences.block:1000}") int idBlock,
+                          @Value("${ecompta.sequences.debut-exercice:1}") int exerciceStart) {
+        this.dataDir = new File(dataDir);
+        this.dossiersDir = new File(this.dataDir, dossiersDir);
+        this.budgetBytes = budgetMb * 1024 * 1024;
+        this.settings = new Settings(flushDelayMs, fsync, snapshotEvery, checkpointEvery,
+                Arrays.stream(bankAccounts.split(",")).map(String::trim).filter(x -> !x.isEmpty()).toArray(String[]::new),
+                resource("/etats/mapping-ohada.json"), idBlock, exerciceStart);
+    }
+
+    public ObjectMapper mapper() { return om; }
+
+    /** Dossier de la requête en cours; hors requête, le dossier par défaut (jamais évincé, voir evict). */
+    public Dossier current() {
+        Dossier d = CURRENT.get();
+        if (d != null) return d;
+        d = open(DEFAULT);
+        d.release();
+        return d;
+    }
+
+    /** Lie le dossier (déjà sous bail) au thread courant, jusqu'à unbind(). */
+    public void bind(Dossier d) { CURRENT.set(d); }
+
+    public void unbind() { CURRENT.remove(); }
+
+    public static boolean validId(String id) { return DEFAULT.equals(id) || ID.matcher(id).matches(); }
+
+    /** Vrai si le dossier existe sur disque (le dossier par défaut existe toujours). */
+    public boolean exists(String id) { return DEFAULT.equals(id) || (validId(id) && dir(id).isDirectory()); }
+
+    /** Crée le répertoire d'un nouveau dossier; faux s'il existe déjà. */
+    public boolean create(String id) {
+        if (!validId(id) || DEFAULT.equals(id)) throw new IllegalArgumentException("invalid dossier id");
+        File d = dir(id);
+        if (d.exists()) return false;
+        if (!d.mkdirs()) throw new UncheckedIOException(new IOException("cannot create " + d));
+        return true;
+    }
+
+    /** Dossiers existants sur disque (le dossier par défaut en tête, id vide). */
+    public List<String> list() {
+        List<String> out = new ArrayList<>();
+        out.add(DEFAULT);
+        String[] names = dossiersDir.list();
+        if (names != null) for (String n : names) if (ID.matcher(n).matches() && new File(dossiersDir, n).isDirectory()) out.add(n);
+        Collections.sort(out.subList(1, out.size()));
+        return out;
+    }
+
+    /** Dossiers chargés: id → mémoire estimée, baux en cours. */
+    public synchronized Map<String, long[]> loaded() {
+        Map<String, long[]> out = new TreeMap<>();
+        for (Dossier d : open.values()) if (d.loaded()) out.put(d.id(), new long[] { d.estimatedBytes(), d.leases() });
+        return out;
+    }
+
+    public long budgetBytes() { return budgetBytes; }
+
+    /**
+     * Dossier id sous bail (à rendre par release()), chargé au besoin; le chargement d'un dossier peut en
+     * décharger d'autres pour rester dans le budget mémoire.
+     */
+    public Dossier open(String id) {
+        if (!exists(id)) throw new NoSuchElementException("unknown dossier " + id);
+        Dossier d, previous;
+        synchronized (this) {
+            d = open.computeIfAbsent(id, k -> new Dossier(k, dir(k), om, flusher, settings));
+            d.retain();
+            previous = closing.get(id);
+        }
+        try {
+            if (!d.loaded()) {
+                long t0 = System.nanoTime();
+                d.load(previous);
+                log.info("Dossier '{}' loaded in {} ms", id, (System.nanoTime() - t0) / 1_000_000);
+                evict(d);
+            }
+        } catch (InterruptedException e) {
+            d.release();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while loading dossier " + id, e);
+        } catch (RuntimeException e) {
+            d.release();
+            synchronized (this) { if (!d.leased()) open.remove(id, d); }
+            throw e;
+        }
+        return d;
+    }
+
+    // Ferme les dossiers inutilisés les moins récents tant que le total estimé dépasse le budget. Le dossier par
+    // défaut reste chargé: current() le sert hors requête sans bail (tâches planifiées, démarrage)
+    private void evict(Dossier keep) {
+        List<Dossier> victims = new ArrayList<>();
+        synchronized (this) {
+            long total = 0;
+            List<Dossier> idle = new ArrayList<>();
+            for (Dossier d : open.values()) {
+                if (!d.loaded()) continue;
+                total += d.estimatedBytes();
+                if (d != keep && !d.leased() && !DEFAULT.equals(d.id())) idle.add(d);
+            }
+            idle.sort(Comparator.comparingLong(d -> d.lastUsed));
+            for (Dossier d : idle) {
+                if (total <= budgetBytes) break;
+                total -= d.estimatedBytes();
+                open.remove(d.id());
+                closing.put(d.id(), d);
+                victims.add(d);
+            }
+        }
+        for (Dossier d : victims) {
+            d.close();
+            synchronized (this) { closing.remove(d.id(), d); }
+            log.info("Dossier '{}' unloaded (memory budget {} MB)", d.id(), budgetBytes >> 20);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        List<Dossier> all;
+        synchronized (this) { all = new ArrayList<>(open.values()); open.clear(); }
+        for (Dossier d : all) d.close();
+        flusher.shutdown();
+    }
+
+    private File dir(String id) { return DEFAULT.equals(id) ? dataDir : new File(dossiersDir, id); }
+
+    private JsonNode resource(String path) {
+        try (InputStream in = DataRepository.class.getResourceAsStream(path)) {
+            if (in == null) throw new IllegalStateException("missing resource " + path);
+            return om.readTree(in);
+        } catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    // Paramètres communs à tous les dossiers
+    static final class Settings {
+        final long flushDelayMs;
+        final boolean fsync;
+        final int snapshotEvery;
+        final int checkpointEvery;
+        final String[] bankAccounts;
+        final JsonNode mapping;
+        final int idBlock;
+        final int exerciceStart;
+
+        Settings(long flushDelayMs, boolean fsync, int snapshotEvery, int checkpointEvery, String[] bankAccounts, JsonNode mapping,
+                 int idBlock, int exerciceStart) {
+            this.flushDelayMs = flushDelayMs; this.fsync = fsync; this.snapshotEvery = snapshotEvery;
+            this.checkpointEvery = checkpointEvery; this.bankAccounts = bankAccounts; this.mapping = mapping;
+            this.idBlock = idBlock; this.exerciceStart = exerciceStart;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.ecomptaia.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Jeu de données chargé une fois en mémoire. Les lectures servent une vue immuable (CowList),
+ * les écritures passent par un unique thread écrivain: la transaction s'exécute sur la dernière vue,
+ * le store persiste, puis la nouvelle vue est publiée et les listeners notifiés.
+ */
+public class Dataset<T> {
+    private final String name;
+    private final Class<T> type;
+    private final DatasetStore<T> store;
+    private final ObjectMapper om;
+    private final ExecutorService writer;
+    private final List<DatasetListener<T>> listeners = new CopyOnWriteArrayList<>();
+    private volatile CowList<T> view;
+    private long nextOrd = 1;
+
+    public Dataset(String name, Class<T> type, DatasetStore<T> store, ObjectMapper om) {
+        this.name = name; this.type = type; this.store = store; this.om = om;
+        this.writer = Executors.newSingleThreadExecutor(r -> { Thread t = new Thread(r, "dataset-" + name); t.setDaemon(true); return t; });
+    }
+
+    public String name() { return name; }
+
+    public CowList<T> view() {
+        CowList<T> v = view;
+        return v != null ? v : load();
+    }
+
+    /** Enregistre un listener et l'initialise avec la vue courante, en série avec les écritures. */
+    public void addListener(DatasetListener<T> l) {
+        view();
+        try { await(writer.submit(() -> { listeners.add(l); l.reset(view); return null; })); }
+        catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    /** Exécute la transaction sur le thread écrivain et attend sa persistance. */
+    public <R> R write(Function<Tx, R> fn) throws IOException {
+        view();
+        Future<R> f = writer.submit(() -> {
+            Tx tx = new Tx(view);
+            R r = fn.apply(tx);
+            if (tx.changes.isEmpty() && !tx.reset) return r;
+            store.commit(tx.cur, tx.changes, tx.reset);
+            for (DatasetListener<T> l : listeners) l.publishing();
+            try {
+                view = tx.cur;
+                for (DatasetListener<T> l : listeners) {
+                    if (tx.reset) l.reset(tx.cur);
+                    else for (Change<T> c : tx.changes) {
+                        if (c.previous != null) l.replaced(c.ord, c.previous, c.item);
+                        else if (c.added) l.added(c.ord, c.item);
+                        else l.removed(c.ord, c.item);
+                    }
+                }
+            } finally {
+                for (DatasetListener<T> l : listeners) l.published();
+            }
+            return r;
+        });
+        return await(f);
+    }
+
+    private static <R> R await(Future<R> f) throws IOException {
+        try { return f.get(); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); throw new IOException("interrupted", e); }
+        catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof IOException io) throw io;
+            if (c instanceof UncheckedIOException uio) throw uio.getCause();
+            if (c instanceof RuntimeException re) throw re;
+            throw new IOException(c);
+        }
+    }
+
+    public void close() throws IOException {
+        writer.shutdown();
+        try { writer.awaitTermination(10, TimeUnit.SECONDS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        store.close();
+    }
+
+    private synchronized CowList<T> load() {
+        if (view == null) {
+            try { List<T> items = store.load(); view = CowList.of(items, nextOrd); nextOrd += items.size(); }
+            catch (IOException e) { throw new UncheckedIOException("cannot load dataset " + name, e); }
+        }
+        return view;
+    }
+
+    /** Ajout, suppression, ou remplacement (added, previous non nul: même ordinal, même position). */
+    public static final class Change<T> {
+        public final boolean added;
+        public final long ord;
+        public final T item;
+        public final T previous;
+        Change(boolean added, long ord, T item) { this(added, ord, item, null); }
+        Change(boolean added, long ord, T item, T previous) { this.added = added; this.ord = ord; this.item = item; this.previous = previous; }
+    }
+
+    /** Transaction d'écriture: ne vit que sur le thread écrivain. */
+    public final class Tx {
+        private CowList<T> cur;
+        private final List<Change<T>> changes = new ArrayList<>();
+        private boolean reset;
+
+        private Tx(CowList<T> cur) { this.cur = cur; }
+
+        public CowList<T> items() { return cur; }
+
+        public void add(T item) { long ord = nextOrd++; cur = cur.append(item, ord); changes.add(new Change<>(true, ord, item)); }
+
+        public void addAll(Collection<? extends T> items) { for (T t : items) add(t); }
+
+        public void set(int index, T item) {
+            T old = cur.get(index);
+            long ord = cur.ordinal(index);
+            cur = cur.with(index, item);
+            changes.add(new Change<>(true, ord, item, old));
+        }
+
+        public boolean removeIf(Predicate<? super T> p) {
+            int before = changes.size();
+            cur = cur.removeIf(p, (t, ord) -> changes.add(new Change<>(false, ord, t)));
+            return changes.size() > before;
+        }
+
+        public void replaceAll(Collection<? extends T> items) { cur = CowList.of(items, nextOrd); nextOrd += items.size(); changes.clear(); reset = true; }
+
+        /** Copie profonde d'un élément de la vue, à modifier puis réinjecter via set(). */
+        public T copy(T item) { return om.convertValue(item, type); }
+    }
+}
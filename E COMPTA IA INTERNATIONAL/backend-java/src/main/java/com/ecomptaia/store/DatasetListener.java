@@ -0,0 +1,23 @@
+package com.ecomptaia.store;
+
+/**
+ * Notifié sur le thread écrivain après chaque publication d'une nouvelle vue.
+ * ord est l'ordinal d'insertion de l'élément (voir CowList).
+ */
+public interface DatasetListener<T> {
+    default void reset(CowList<T> items) {}
+    default void added(long ord, T item) {}
+    default void removed(long ord, T item) {}
+
+    /**
+     * Élément remplacé sur place, sous le même ordinal. Par défaut retrait puis ajout; un listener qui diffère
+     * ses retraits par ordinal doit le redéfinir, le retrait différé emporterait sinon le nouvel élément.
+     */
+    default void replaced(long ord, T old, T item) { removed(ord, old); added(ord, item); }
+
+    /** Juste avant la publication d'une nouvelle vue (le store a persisté), avant ses notifications. */
+    default void publishing() {}
+
+    /** Toutes les notifications de la nouvelle vue faites (appelé même si un listener a échoué). */
+    default void published() {}
+}
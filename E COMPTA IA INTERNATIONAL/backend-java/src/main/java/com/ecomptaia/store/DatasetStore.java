@@ -0,0 +1,14 @@
+package com.ecomptaia.store;
+
+import java.io.IOException;
+import java.util.List;
+
+/** Persistance d'un Dataset: chargement initial puis application des modifications validées par l'écrivain. */
+public interface DatasetStore<T> {
+    List<T> load() throws IOException;
+
+    /** Appelé sur le thread écrivain, avant publication de la nouvelle vue. */
+    void commit(List<T> view, List<Dataset.Change<T>> changes, boolean reset) throws IOException;
+
+    default void close() throws IOException {}
+}
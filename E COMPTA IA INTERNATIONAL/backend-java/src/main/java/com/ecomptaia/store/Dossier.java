@@ -0,0 +1,207 @@
+package com.ecomptaia.store;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.api.PlanController.AccountItem;
+import com.ecomptaia.ledger.AccountTrie;
+import com.ecomptaia.ledger.BankIndex;
+import com.ecomptaia.ledger.ClosingIndex;
+import com.ecomptaia.ledger.CounterpartyIndex;
+import com.ecomptaia.ledger.GeneralLedger;
+import com.ecomptaia.ledger.LedgerArchives;
+import com.ecomptaia.ledger.LedgerIndex;
+import com.ecomptaia.ledger.ReconciledIndex;
+import com.ecomptaia.ledger.StatementsEngine;
+import com.ecomptaia.ledger.TiersIndex;
+import com.ecomptaia.ledger.TrialBalance;
+import com.ecomptaia.model.Cloture;
+import com.ecomptaia.model.Journal;
+import com.ecomptaia.model.Lettre;
+import com.ecomptaia.model.Rapprochement;
+import com.ecomptaia.model.Tiers;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jeux de données et index d'un dossier (une société cliente), dans son propre répertoire: tout est chargé
+ * et indexé au premier load(), libéré à la fermeture. Les baux (retain / release) empêchent le DataRepository
+ * de fermer un dossier en cours d'utilisation.
+ */
+public class Dossier {
+    private static final Logger log = LoggerFactory.getLogger(Dossier.class);
+    // Mémoire estimée (octets) d'une écriture avec ses lignes et leurs entrées d'index (mesuré: ~190 Mo de tas
+    // pour 197 000 écritures de 2 à 3 lignes), et d'un autre élément avec ses entrées d'index
+    static final long ENTRY_BYTES = 1_000;
+    static final long ITEM_BYTES = 600;
+
+    private final String id;
+    private final Dataset<Ecriture> ecritures;
+    private final Dataset<AccountItem> plan;
+    private final Dataset<Journal> journaux;
+    private final Dataset<Tiers> tiers;
+    private final Dataset<Lettre> lettrage;
+    private final Dataset<Rapprochement> rapprochements;
+    private final Dataset<Cloture> clotures;
+    private final LedgerIndex ledgerIndex = new LedgerIndex();
+    private final ClosingIndex closures = new ClosingIndex();
+    private final LedgerArchives archives;
+    private final Sequences sequences;
+    private final TrialBalance trialBalance;
+    private final CounterpartyIndex counterparties = new CounterpartyIndex();
+    private final AccountTrie accounts = new AccountTrie();
+    private final TiersIndex tiersIndex = new TiersIndex();
+    private final ReconciledIndex reconciled = new ReconciledIndex();
+    private final BankIndex bankIndex;
+    private final GeneralLedger generalLedger;
+    private final StatementsEngine statements;
+    private final AtomicInteger leases = new AtomicInteger();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private boolean loaded;
+    volatile long lastUsed = System.nanoTime();
+
+    Dossier(String id, File dataDir, ObjectMapper om, ScheduledExecutorService flusher, DataRepository.Settings s) {
+        this.id = id;
+        this.ecritures = new Dataset<>("ecritures", Ecriture.class, new LedgerStore(dataDir, om, s.fsync, s.snapshotEvery), om);
+        this.plan = json(dataDir, "plan", AccountItem.class, om, flusher, s.flushDelayMs);
+        this.journaux = json(dataDir, "journaux", Journal.class, om, flusher, s.flushDelayMs);
+        this.tiers = json(dataDir, "tiers", Tiers.class, om, flusher, s.flushDelayMs);
+        this.lettrage = json(dataDir, "lettrage", Lettre.class, om, flusher, s.flushDelayMs);
+        this.rapprochements = json(dataDir, "rapprochements", Rapprochement.class, om, flusher, s.flushDelayMs);
+        // écrites avant de répondre: une clôture perdue rouvrirait des mois déjà reportés en à-nouveaux
+        this.clotures = new Dataset<>("clotures", Cloture.class, new JsonFileStore<>(new File(dataDir, "clotures.json"), Cloture.class, om, s.fsync), om);
+        this.archives = new LedgerArchives(new File(dataDir, "archives"));
+        this.sequences = new Sequences(new File(dataDir, "sequences.json"), om, s.idBlock, s.exerciceStart);
+        this.trialBalance = new TrialBalance(closures, archives);
+        this.generalLedger = new GeneralLedger(s.checkpointEvery, closures, archives);
+        this.statements = new StatementsEngine(s.mapping, trialBalance);
+        this.bankIndex = new BankIndex(s.bankAccounts);
+    }
+
+    /** Charge les jeux de données et construit les index, une seule fois; attend d'abord la fermeture de previous. */
+    synchronized void load(Dossier previous) throws InterruptedException {
+        if (loaded) return;
+        if (previous != null) previous.closed.await();
+        plan.addListener(accounts);
+        tiers.addListener(tiersIndex);
+        rapprochements.addListener(reconciled);
+        clotures.addListener(statements.updateListener());
+        clotures.addListener(closures);
+        try {
+            sequences.load();
+            archives.load();
+            for (ColumnArchive a : archives.all()) a.forEachId(sequences::seen);
+            // archivage interrompu après l'écriture de l'archive: ses écritures y sont déjà, on achève le retrait
+            if (!archives.isEmpty()) ecritures.write(tx -> tx.removeIf(e -> archives.covers(e.getDate())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot load archives of dossier '" + id + "'", e);
+        }
+        // version des états incrémentée avant la mise à jour de la balance, puis après (invalidation du cache)
+        ecritures.addListener(statements.updateListener());
+        ecritures.addListener(sequences);
+        tiers.addListener(sequences.idListener(Tiers::getId));
+        lettrage.addListener(sequences.idListener(Lettre::getId));
+        rapprochements.addListener(sequences.idListener(Rapprochement::getId));
+        ecritures.addListener(ledgerIndex);
+        ecritures.addListener(trialBalance);
+        ecritures.addListener(generalLedger);
+        // après la balance: le cache des états est invalidé une fois les cumuls à jour
+        ecritures.addListener(statements);
+        plan.addListener(statements.planListener());
+        clotures.addListener(statements.closingListener());
+        ecritures.addListener(counterparties);
+        ecritures.addListener(bankIndex);
+        loaded = true;
+    }
+
+    synchronized boolean loaded() { return loaded; }
+
+    /** Identifiant du dossier; vide pour le dossier par défaut (data/). */
+    public String id() { return id; }
+
+    public Dataset<Ecriture> ecritures() { return ecritures; }
+    public Dataset<AccountItem> plan() { return plan; }
+    public Dataset<Journal> journaux() { return journaux; }
+    public Dataset<Tiers> tiers() { return tiers; }
+
+    /** Lettres des comptes de tiers: lignes rapprochées ("ecritureId#indexLigne") sous un même code. */
+    public Dataset<Lettre> lettrage() { return lettrage; }
+
+    /** Lignes de relevé bancaire pointées avec un mouvement du compte de banque. */
+    public Dataset<Rapprochement> rapprochements() { return rapprochements; }
+
+    /** Périodes closes: mouvements et soldes par compte figés à la clôture, écriture d'à-nouveaux des exercices. */
+    public Dataset<Cloture> clotures() { return clotures; }
+
+    /** Plan comptable en arbre de préfixes (recherche exacte, parent le plus proche, sous-arbres). */
+    public AccountTrie accounts() { return accounts; }
+
+    /** Tiers par id et par code, numérotation des codes par préfixe, recherche par nom (trigrammes). */
+    public TiersIndex tiersIndex() { return tiersIndex; }
+
+    /** Index journal / date / compte / tiers du grand livre, reconstruit au chargement. */
+    public LedgerIndex ledgerIndex() { return ledgerIndex; }
+
+    /** Cumuls débit / crédit par mois et par compte, tenus à jour à chaque écriture. */
+    public TrialBalance trialBalance() { return trialBalance; }
+
+    /** Lignes par compte triées chronologiquement, avec soldes cumulés mémorisés. */
+    public GeneralLedger generalLedger() { return generalLedger; }
+
+    /** Bilan et compte de résultat selon etats/mapping-ohada.json, en cache par période. */
+    public StatementsEngine statements() { return statements; }
+
+    /** Comptes et journaux habituels de chaque tiers, appris des écritures. */
+    public CounterpartyIndex counterparties() { return counterparties; }
+
+    /** Mouvements des comptes de banque triés par montant puis date, pour le rapprochement. */
+    public BankIndex bankIndex() { return bankIndex; }
+
+    /** Clôtures par dernier mois clos: écritures figées, début de l'exercice en cours, instantanés de balance. */
+    public ClosingIndex closures() { return closures; }
+
+    /** Exercices archivés en colonnes hors tas; leurs écritures ne sont plus dans ecritures(). */
+    public LedgerArchives archives() { return archives; }
+
+    /** Identifiants uniques et numéros de pièce sans trou par journal et exercice. */
+    public Sequences sequences() { return sequences; }
+
+    /** Lignes de banque déjà rapprochées d'un relevé. */
+    public ReconciledIndex reconciled() { return reconciled; }
+
+    /** Prend un bail: le dossier ne sera pas déchargé avant le release() correspondant. */
+    public Dossier retain() { leases.incrementAndGet(); lastUsed = System.nanoTime(); return this; }
+
+    public void release() { leases.decrementAndGet(); }
+
+    boolean leased() { return leases.get() > 0; }
+
+    int leases() { return leases.get(); }
+
+    /** Mémoire estimée des données chargées, d'après le nombre d'éléments de chaque jeu (hors archives, non chargées dans le tas). */
+    public long estimatedBytes() {
+        long items = plan.view().size() + journaux.view().size() + tiers.view().size() + lettrage.view().size() + rapprochements.view().size();
+        for (Cloture c : clotures.view()) items += 1 + (c.getSoldes() == null ? 0 : c.getSoldes().size());
+        return ecritures.view().size() * ENTRY_BYTES + items * ITEM_BYTES;
+    }
+
+    synchronized void close() {
+        for (Dataset<?> d : List.of(ecritures, plan, journaux, tiers, lettrage, rapprochements, clotures)) {
+            try { d.close(); } catch (IOException e) { log.error("Cannot close dataset {} of dossier '{}'", d.name(), id, e); }
+        }
+        archives.close();
+        try { sequences.close(); } catch (IOException e) { log.error("Cannot save sequences of dossier '{}'", id, e); }
+        closed.countDown();
+    }
+
+    private static <T> Dataset<T> json(File dir, String name, Class<T> type, ObjectMapper om, ScheduledExecutorService flusher, long delayMs) {
+        return new Dataset<>(name, type, new JsonFileStore<>(new File(dir, name + ".json"), type, om, flusher, delayMs), om);
+    }
+}
@@ -0,0 +1,128 @@
+package com.ecomptaia.store;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.ecomptaia.ledger.ClosingIndex;
+import com.ecomptaia.rules.RuleEngine;
+import com.ecomptaia.rules.Violation;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Validation groupée des ajouts d'écritures: les demandes concurrentes sont mises en file, puis un seul
+ * thread les valide (règles bloquantes du RuleEngine) et les écrit ensemble dans une transaction par dossier, donc un seul
+ * append WAL + fsync par lot et par dossier. Chaque demande garde un bail sur son dossier jusqu'au commit.
+ * Une écriture datée dans une période close est refusée (ClosingIndex.Closed), quelles que soient les règles bloquantes. Le futur de chaque appelant n'est complété qu'après ce commit.
+ * Les écritures acceptées sans pièce y reçoivent leur numéro (Sequences), dans l'ordre de la file.
+ * Sans attente configurée, le lot se forme naturellement pendant le fsync du lot précédent.
+ */
+@Component
+public class GroupCommitter {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitter.class);
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final RuleEngine rules;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final Thread drainer;
+    private final Object gate = new Object();      // running et mise en file vus ensemble par submit et stop
+    private volatile boolean running = true;
+
+    public GroupCommitter(RuleEngine rules,
+                          @Value("${ecompta.ledger.group-commit.batch-size:512}") int batchSize,
+                          @Value("${ecompta.ledger.group-commit.linger-ms:0}") long lingerMs) {
+        this.rules = rules;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMs));
+        this.drainer = new Thread(this::run, "ledger-group-commit");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    public CompletableFuture<Ecriture> submit(Dossier d, Ecriture e) {
+        Pending p = new Pending(d.retain(), e);
+        synchronized (gate) {
+            if (running) { queue.add(p); return p.future; }
+        }
+        d.release();
+        p.future.completeExceptionally(new IllegalStateException("ledger writer stopped"));
+        return p.future;
+    }
+
+    // Sans interruption: un commit en cours irait jusqu'au WAL mais son appelant recevrait une erreur. Le drainer
+    // vide la file puis s'arrête (attente d'au plus une seconde); ce qui resterait au-delà du délai est refusé.
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        synchronized (gate) { running = false; }
+        drainer.join(5000);
+        List<Pending> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (Pending p : left) {
+            p.future.completeExceptionally(new IllegalStateException("ledger writer stopped"));
+            p.d.release();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (lingerNanos > 0) {
+                    long deadline = System.nanoTime() + lingerNanos;
+                    while (batch.size() < batchSize) {
+                        Pending p = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (p == null) break;
+                        batch.add(p);
+                    }
+                }
+            } catch (InterruptedException ie) {
+                if (running) continue;
+                queue.drainTo(batch);
+            }
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        Map<Dossier, List<Pending>> byDossier = new LinkedHashMap<>();
+        for (Pending p : batch) byDossier.computeIfAbsent(p.d, k -> new ArrayList<>()).add(p);
+        byDossier.forEach((d, ps) -> {
+            List<Pending> accepted = new ArrayList<>(ps.size());
+            try {
+                d.ecritures().write(tx -> {
+                    Sequences.Numbering pieces = d.sequences().numbering();
+                    for (Pending p : ps) {
+                        if (d.closures().closed(p.e.getDate())) { p.future.completeExceptionally(new ClosingIndex.Closed(d.closures().closedUntil())); continue; }
+                        List<Violation> v = rules.blockingViolations(d, p.e);
+                        if (!v.isEmpty()) p.future.completeExceptionally(new RuleEngine.Rejected(v));
+                        else { pieces.assign(p.e); tx.add(p.e); accepted.add(p); }
+                    }
+                    return null;
+                });
+                for (Pending p : accepted) p.future.complete(p.e);
+            } catch (Exception ex) {
+                log.error("Group commit of {} entries failed", accepted.size(), ex);
+                for (Pending p : ps) if (!p.future.isDone()) p.future.completeExceptionally(ex);
+            } finally {
+                for (Pending p : ps) d.release();
+            }
+        });
+    }
+
+    private static final class Pending {
+        final Dossier d;
+        final Ecriture e;
+        final CompletableFuture<Ecriture> future = new CompletableFuture<>();
+        Pending(Dossier d, Ecriture e) { this.d = d; this.e = e; }
+    }
+}
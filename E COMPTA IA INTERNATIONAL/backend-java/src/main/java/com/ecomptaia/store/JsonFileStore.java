@@ -0,0 +1,89 @@
+package com.ecomptaia.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fichier data/*.json au format {"items":[...]}. Les commits ne font que mémoriser la dernière vue;
+ * la réécriture du fichier est différée et regroupée sur le flusher partagé. En mode synchrone (données qui
+ * engagent d'autres écritures: clôtures), le fichier est réécrit, et fsync si demandé, avant la fin du commit.
+ */
+public class JsonFileStore<T> implements DatasetStore<T> {
+    private static final Logger log = LoggerFactory.getLogger(JsonFileStore.class);
+
+    private final File dataFile;
+    private final Class<T> type;
+    private final ObjectMapper om;
+    private final ScheduledExecutorService flusher;
+    private final long delayMs;
+    private final boolean sync;
+    private final boolean fsync;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile List<T> latest;
+    private volatile boolean dirty;
+
+    public JsonFileStore(File dataFile, Class<T> type, ObjectMapper om, ScheduledExecutorService flusher, long delayMs) {
+        this(dataFile, type, om, flusher, delayMs, false, false);
+    }
+
+    /** Store synchrone: chaque commit réécrit le fichier (fsync si fsync) avant de rendre la main. */
+    public JsonFileStore(File dataFile, Class<T> type, ObjectMapper om, boolean fsync) {
+        this(dataFile, type, om, null, 0, true, fsync);
+    }
+
+    private JsonFileStore(File dataFile, Class<T> type, ObjectMapper om, ScheduledExecutorService flusher, long delayMs, boolean sync, boolean fsync) {
+        this.dataFile = dataFile; this.type = type; this.om = om; this.flusher = flusher; this.delayMs = delayMs; this.sync = sync; this.fsync = fsync;
+    }
+
+    @Override
+    public List<T> load() throws IOException {
+        if (!dataFile.exists()) return new ArrayList<>();
+        JsonNode root = om.readTree(dataFile);
+        List<T> out = new ArrayList<>();
+        for (JsonNode n : root.path("items")) out.add(om.treeToValue(n, type));
+        return out;
+    }
+
+    @Override
+    public void commit(List<T> view, List<Dataset.Change<T>> changes, boolean reset) throws IOException {
+        // synchrone: une écriture en échec fait échouer la transaction, la vue n'est pas publiée
+        if (sync) { write(view); return; }
+        latest = view; dirty = true;
+        if (scheduled.compareAndSet(false, true)) flusher.schedule(this::flushQuietly, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException { flush(); }
+
+    private void flushQuietly() {
+        try { flush(); } catch (IOException e) { log.error("Cannot write {}", dataFile, e); }
+    }
+
+    private synchronized void flush() throws IOException {
+        scheduled.set(false);
+        if (!dirty) return;
+        dirty = false;
+        try { write(latest); } catch (IOException e) { dirty = true; throw e; }
+    }
+
+    private synchronized void write(List<T> items) throws IOException {
+        dataFile.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = new File(dataFile.getPath() + ".tmp");
+        om.writeValue(tmp, Map.of("items", items));
+        if (fsync) try (FileChannel ch = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) { ch.force(true); }
+        Files.move(tmp.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,291 @@
+package com.ecomptaia.store;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Stockage des écritures en journal d'écriture anticipée (WAL).
+ * Chaque ajout / suppression est une ligne "crc json" ajoutée au segment courant puis fsync;
+ * un snapshot compacté (data/ecritures.json, même format {"items":[...]}) est réécrit en tâche de fond
+ * tous les N enregistrements. Au démarrage: snapshot + rejeu des segments plus récents.
+ */
+public class LedgerStore implements DatasetStore<Ecriture> {
+    private static final Logger log = LoggerFactory.getLogger(LedgerStore.class);
+
+    private final ObjectMapper om;
+    private final File snapshotFile;
+    private final File walDir;
+    private final boolean fsync;
+    private final int snapshotEvery;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> { Thread t = new Thread(r, "ledger-compactor"); t.setDaemon(true); return t; });
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final Object snapshotLock = new Object();
+    private long snapshotSeq;
+
+    private FileChannel segment;
+    private long segmentSeq;
+    private int sinceSnapshot;
+
+    public LedgerStore(File dataDir, ObjectMapper om, boolean fsync, int snapshotEvery) {
+        this.om = om;
+        this.snapshotFile = new File(dataDir, "ecritures.json");
+        this.walDir = new File(dataDir, "ecritures.wal");
+        this.fsync = fsync;
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+    }
+
+    @Override
+    public synchronized void commit(List<Ecriture> view, List<Dataset.Change<Ecriture>> changes, boolean reset) throws IOException {
+        if (reset) {
+            // Remplacement complet: un snapshot synchrone suffit, les segments antérieurs deviennent caducs
+            long upTo = segmentSeq;
+            openSegment(upTo + 1);
+            writeSnapshot(view, upTo);
+            deleteSegmentsUpTo(upTo);
+            sinceSnapshot = 0;
+            return;
+        }
+        List<byte[]> recs = new ArrayList<>(changes.size());
+        for (Dataset.Change<Ecriture> c : changes) {
+            // remplacement sur place (R); un changement d'id retire l'ancienne et ajoute la nouvelle en fin
+            boolean replace = c.previous != null && Objects.equals(c.previous.getId(), c.item.getId());
+            if (c.previous != null && !replace) {
+                ObjectNode d = om.createObjectNode();
+                d.put("op", "D"); d.put("id", c.previous.getId());
+                recs.add(encode(d));
+            }
+            ObjectNode r = om.createObjectNode();
+            if (c.added) { r.put("op", replace ? "R" : "A"); r.set("e", om.valueToTree(c.item)); }
+            else { r.put("op", "D"); r.put("id", c.item.getId()); }
+            recs.add(encode(r));
+        }
+        writeRecords(recs);
+        sinceSnapshot += recs.size();
+        maybeCompact(view);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        compactor.shutdown();
+        if (segment != null) { segment.force(true); segment.close(); }
+    }
+
+    // WAL
+    private byte[] encode(JsonNode rec) throws IOException {
+        byte[] json = om.writeValueAsBytes(rec);
+        CRC32 crc = new CRC32(); crc.update(json);
+        byte[] head = String.format("%08x ", crc.getValue()).getBytes(StandardCharsets.US_ASCII);
+        byte[] out = new byte[head.length + json.length + 1];
+        System.arraycopy(head, 0, out, 0, head.length);
+        System.arraycopy(json, 0, out, head.length, json.length);
+        out[out.length - 1] = '\n';
+        return out;
+    }
+
+    private void writeRecords(List<byte[]> recs) throws IOException {
+        int len = 0; for (byte[] r : recs) len += r.length;
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        for (byte[] r : recs) buf.put(r);
+        buf.flip();
+        if (segment == null) openSegment(segmentSeq);
+        long start = segment.size();
+        try {
+            while (buf.hasRemaining()) segment.write(buf);
+            if (fsync) segment.force(false);
+        } catch (IOException ex) {
+            discardFrom(start);
+            throw ex;
+        }
+    }
+
+    // Écriture en échec: on retire l'enregistrement partiel, sinon les ajouts suivants le suivraient et le rejeu
+    // s'arrêterait dessus. Si la troncature échoue aussi, on bascule sur un nouveau segment.
+    private void discardFrom(long start) {
+        try {
+            segment.truncate(start);
+            if (fsync) segment.force(false);
+        } catch (IOException ex) {
+            log.error("Cannot truncate WAL segment {} at {}, rolling to a new segment", segmentSeq, start, ex);
+            try { segment.close(); } catch (IOException ignored) { }
+            segment = null;
+            try { openSegment(segmentSeq + 1); }
+            catch (IOException e) { log.error("Cannot open WAL segment {}", segmentSeq, e); }
+        }
+    }
+
+    private void openSegment(long seq) throws IOException {
+        if (segment != null) { segment.force(true); segment.close(); }
+        segmentSeq = seq;
+        segment = FileChannel.open(segmentFile(seq).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private File segmentFile(long seq) { return new File(walDir, String.format("%012d.log", seq)); }
+
+    private List<Long> segmentSeqs() {
+        List<Long> out = new ArrayList<>();
+        File[] fs = walDir.listFiles((d, n) -> n.matches("\\d{12}\\.log"));
+        if (fs != null) for (File f : fs) out.add(Long.parseLong(f.getName().substring(0, 12)));
+        Collections.sort(out);
+        return out;
+    }
+
+    // Snapshot + compaction: la vue est immuable, elle peut être sérialisée hors du thread écrivain
+    private void maybeCompact(List<Ecriture> view) throws IOException {
+        if (sinceSnapshot < snapshotEvery || !compacting.compareAndSet(false, true)) return;
+        long upTo = segmentSeq;
+        openSegment(upTo + 1);
+        sinceSnapshot = 0;
+        compactor.execute(() -> {
+            try { writeSnapshot(view, upTo); deleteSegmentsUpTo(upTo); }
+            catch (IOException ex) { log.error("Ledger snapshot failed (segments kept for replay)", ex); }
+            finally { compacting.set(false); }
+        });
+    }
+
+    private void writeSnapshot(List<Ecriture> list, long walSeq) throws IOException {
+        synchronized (snapshotLock) {
+            // Un snapshot plus récent a déjà été écrit (remplacement complet pendant une compaction)
+            if (walSeq < snapshotSeq) return;
+            snapshotFile.getAbsoluteFile().getParentFile().mkdirs();
+            File tmp = new File(snapshotFile.getPath() + ".tmp");
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("walSeq", walSeq); body.put("items", list);
+            om.writeValue(tmp, body);
+            try (FileChannel ch = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) { ch.force(true); }
+            Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotSeq = walSeq;
+        }
+    }
+
+    private void deleteSegmentsUpTo(long seq) {
+        for (long s : segmentSeqs()) if (s <= seq && !segmentFile(s).delete()) log.warn("Could not delete WAL segment {}", s);
+    }
+
+    // Recovery: snapshot puis rejeu des segments postérieurs
+    @Override
+    public synchronized List<Ecriture> load() throws IOException {
+        walDir.mkdirs();
+        Replay items = new Replay();
+        long walSeq = 0;
+        if (snapshotFile.exists()) {
+            JsonNode root = om.readTree(snapshotFile);
+            walSeq = root.path("walSeq").asLong(0);
+            snapshotSeq = walSeq;
+            for (JsonNode n : root.path("items")) items.add(om.treeToValue(n, Ecriture.class));
+        }
+        List<Long> seqs = segmentSeqs();
+        long last = walSeq;
+        for (int i = 0; i < seqs.size(); i++) {
+            long s = seqs.get(i);
+            if (s <= walSeq) { segmentFile(s).delete(); continue; }
+            replay(segmentFile(s), i == seqs.size() - 1, items);
+            last = s;
+        }
+        openSegment(last + 1);
+        List<Ecriture> out = items.entries();
+        log.info("Ledger recovered: {} entries (snapshot walSeq={}, replayed {} records)", out.size(), walSeq, sinceSnapshot);
+        List<String> shared = items.shared();
+        if (!shared.isEmpty())
+            log.error("Ledger holds {} ids shared by several entries, all kept (a deletion removes the oldest): {}",
+                    shared.size(), shared.size() > 20 ? shared.subList(0, 20) + "..." : shared);
+        return out;
+    }
+
+    private void replay(File f, boolean tail, Replay items) throws IOException {
+        byte[] data = Files.readAllBytes(f.toPath());
+        int pos = 0;
+        while (pos < data.length) {
+            int nl = pos; while (nl < data.length && data[nl] != '\n') nl++;
+            JsonNode rec = nl < data.length ? decode(data, pos, nl) : null;
+            if (rec == null) {
+                // Enregistrement tronqué (crash pendant l'écriture): on coupe la queue du dernier segment
+                if (tail) { try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.WRITE)) { ch.truncate(pos); } }
+                log.warn("Torn WAL record in {} at offset {}, {}", f.getName(), pos, tail ? "truncated" : "remaining records skipped");
+                return;
+            }
+            String op = rec.path("op").asText();
+            if ("A".equals(op)) items.add(om.treeToValue(rec.get("e"), Ecriture.class));
+            else if ("R".equals(op)) items.replace(om.treeToValue(rec.get("e"), Ecriture.class));
+            else if ("D".equals(op)) items.remove(rec.path("id").isTextual() ? rec.path("id").asText() : null);
+            sinceSnapshot++;
+            pos = nl + 1;
+        }
+    }
+
+    private JsonNode decode(byte[] data, int from, int to) {
+        if (to - from < 10 || data[from + 8] != ' ') return null;
+        try {
+            long expected = Long.parseLong(new String(data, from, 8, StandardCharsets.US_ASCII), 16);
+            CRC32 crc = new CRC32(); crc.update(data, from + 9, to - from - 9);
+            if (crc.getValue() != expected) return null;
+            return om.readTree(data, from + 9, to - from - 9);
+        } catch (Exception ex) { return null; }
+    }
+
+    /**
+     * Écritures reconstruites dans l'ordre d'ajout. Un id peut être porté par plusieurs écritures (données
+     * anciennes, id null): aucune n'en écrase une autre, elles sont signalées au chargement. Un retrait (D) vise
+     * la plus ancienne de l'id, un remplacement (R) la plus récente.
+     */
+    private static final class Replay {
+        private final ArrayList<Ecriture> items = new ArrayList<>();      // null = retirée
+        private final Map<String, Integer> first = new HashMap<>();        // id -> position de la plus ancienne
+        private final Map<String, ArrayDeque<Integer>> more = new HashMap<>(); // id partagé -> positions suivantes
+
+        void add(Ecriture e) {
+            String id = e.getId();
+            Integer at = first.putIfAbsent(id, items.size());
+            if (at != null) more.computeIfAbsent(id, k -> new ArrayDeque<>()).addLast(items.size());
+            items.add(e);
+        }
+
+        void replace(Ecriture e) {
+            ArrayDeque<Integer> m = more.get(e.getId());
+            Integer at = m != null && !m.isEmpty() ? m.peekLast() : first.get(e.getId());
+            if (at == null) add(e); else items.set(at, e);
+        }
+
+        void remove(String id) {
+            Integer at = first.remove(id);
+            if (at == null) return;
+            items.set(at, null);
+            ArrayDeque<Integer> m = more.get(id);
+            if (m != null) {
+                first.put(id, m.pollFirst());
+                if (m.isEmpty()) more.remove(id);
+            }
+        }
+
+        // Ids encore portés par plusieurs écritures
+        List<String> shared() {
+            List<String> out = new ArrayList<>();
+            for (String id : more.keySet()) out.add(String.valueOf(id));
+            Collections.sort(out);
+            return out;
+        }
+
+        List<Ecriture> entries() {
+            List<Ecriture> out = new ArrayList<>(first.size());
+            for (Ecriture e : items) if (e != null) out.add(e);
+            return out;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.ecomptaia.store;
+
+import com.ecomptaia.api.EcrituresController.Ecriture;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Numérotation d'un dossier, persistée dans son sequences.json.
+ * Identifiants (ECR-n, TIER-n...): un compteur incrémenté sans verrou, croissant et unique. Les valeurs sont
+ * réservées par blocs: la borne du bloc est écrite (fsync) avant d'en distribuer la première valeur, un seul
+ * accès disque par bloc. Après un arrêt, la numérotation reprend après le dernier bloc réservé (le reste du bloc
+ * est perdu, jamais réémis), et après le plus grand identifiant présent dans les données (seen): un
+ * sequences.json absent ou en retard (sauvegarde restaurée, dossier copié) ne fait pas réémettre d'identifiant.
+ * Pièces: numéro sans trou par journal et exercice (ACH-2025-00001), attribué dans la transaction d'écriture, sur le
+ * thread écrivain, aux écritures sans pièce. Le dernier numéro est relu des écritures validées elles-mêmes (journal
+ * WAL): une transaction en échec ne consomme aucun numéro. Les derniers numéros sont recopiés dans sequences.json
+ * à chaque réservation et à la fermeture, pour ne pas réattribuer celui d'une écriture supprimée.
+ */
+public class Sequences implements DatasetListener<Ecriture> {
+    private static final String DIGITS = "%05d";
+
+    private final File file;
+    private final ObjectMapper om;
+    private final int block;
+    private final int startMonth;
+    private final AtomicLong next = new AtomicLong(1);
+    private volatile long limit = 1;                                         // première valeur non réservée
+    private final Map<String, Integer> pieces = new ConcurrentHashMap<>();   // "JOURNAL|exercice" -> dernier numéro
+    private final Map<String, Integer> persisted = new HashMap<>();
+
+    public Sequences(File file, ObjectMapper om, int block, int startMonth) {
+        this.file = file; this.om = om; this.block = Math.max(1, block); this.startMonth = Math.min(12, Math.max(1, startMonth));
+    }
+
+    /** Relit la dernière réservation et les derniers numéros de pièce enregistrés. */
+    public synchronized void load() throws IOException {
+        if (!file.exists()) return;
+        JsonNode n = om.readTree(file);
+        long reserved = Math.max(1, n.path("ids").asLong(1));
+        next.accumulateAndGet(reserved, Math::max); limit = Math.max(limit, reserved);
+        n.path("pieces").fields().forEachRemaining(f -> persisted.put(f.getKey(), f.getValue().asInt()));
+        pieces.putAll(persisted);
+    }
+
+    /** Identifiant suivant: prefix-n. */
+    public String nextId(String prefix) {
+        long n = next.getAndIncrement();
+        if (n >= limit) reserve(n);
+        return prefix + "-" + n;
+    }
+
+    /** Identifiant déjà attribué (prefix-n): la numérotation reprend au-delà. */
+    public void seen(String id) {
+        long n = idNumber(id);
+        if (n >= next.get()) next.accumulateAndGet(n + 1, Math::max);
+    }
+
+    /** Écouteur qui fait avancer la numérotation au-delà des identifiants d'un jeu de données. */
+    public <T> DatasetListener<T> idListener(Function<T, String> id) {
+        return new DatasetListener<>() {
+            @Override
+            public void reset(CowList<T> items) { for (T t : items) seen(id.apply(t)); }
+            @Override
+            public void added(long ord, T t) { seen(id.apply(t)); }
+        };
+    }
+
+    // n de prefix-n (0 sinon)
+    private static long idNumber(String id) {
+        if (id == null) return 0;
+        int dash = id.lastIndexOf('-');
+        if (dash < 0 || dash == id.length() - 1 || id.length() - dash - 1 > 18) return 0;
+        long n = 0;
+        for (int i = dash + 1; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return 0;
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    private synchronized void reserve(long n) {
+        if (n < limit) return;
+        long l = Math.max(limit, n + 1) + block - 1;
+        try { write(l); } catch (IOException e) { throw new UncheckedIOException("cannot reserve ids in " + file, e); }
+        limit = l;
+    }
+
+    private synchronized void write(long ids) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ids", ids);
+        body.put("pieces", new TreeMap<>(pieces));
+        File tmp = new File(file.getPath() + ".tmp");
+        om.writeValue(tmp, body);
+        try (FileChannel ch = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) { ch.force(true); }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void reset(CowList<Ecriture> items) {
+        pieces.clear();
+        pieces.putAll(persisted);
+        for (Ecriture e : items) added(0, e);
+    }
+
+    // Une suppression ne rend pas son numéro
+    @Override
+    public void added(long ord, Ecriture e) {
+        seen(e.getId());
+        String key = key(e);
+        int n = key == null ? 0 : number(e, key);
+        if (n > 0) pieces.merge(key, n, Math::max);
+    }
+
+    /** Numérotation des pièces d'une transaction d'écriture; à utiliser sur le thread écrivain. */
+    public Numbering numbering() { return new Numbering(); }
+
+    /** Derniers numéros validés, par journal et exercice. */
+    public Map<String, Integer> pieces() { return new TreeMap<>(pieces); }
+
+    /** Enregistre les derniers numéros de pièce (la réservation en cours est conservée). */
+    public synchronized void close() throws IOException {
+        if (limit > 1 || !pieces.isEmpty()) write(limit);
+    }
+
+    // Clé journal|exercice; l'exercice porte l'année de son premier mois
+    private String key(Ecriture e) {
+        String j = e.getJournalCode(), d = e.getDate();
+        if (j == null || j.isBlank() || d == null || d.length() < 7) return null;
+        try {
+            int y = Integer.parseInt(d.substring(0, 4)), m = Integer.parseInt(d.substring(5, 7));
+            return j.trim() + "|" + (m >= startMonth ? y : y - 1);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    // Numéro d'une pièce au format de la séquence (0 sinon)
+    private static int number(Ecriture e, String key) {
+        String p = e.getPiece(), prefix = key.replace('|', '-') + "-";
+        if (p == null || !p.startsWith(prefix) || p.length() == prefix.length() || p.length() - prefix.length() > 9) return 0;
+        for (int i = prefix.length(); i < p.length(); i++) if (!Character.isDigit(p.charAt(i))) return 0;
+        return Integer.parseInt(p.substring(prefix.length()));
+    }
+
+    /** Compteurs locaux à une transaction: perdus si elle échoue, repris des écritures validées sinon. */
+    public final class Numbering {
+        private final Map<String, Integer> local = new HashMap<>();
+
+        /** Attribue le numéro suivant à une écriture sans pièce; une pièce déjà au format fait avancer la séquence. */
+        public void assign(Ecriture e) {
+            String key = key(e);
+            if (key == null) return;
+            int last = local.computeIfAbsent(key, k -> pieces.getOrDefault(k, 0));
+            if (e.getPiece() == null || e.getPiece().isBlank()) {
+                local.put(key, last + 1);
+                e.setPiece(key.replace('|', '-') + "-" + String.format(DIGITS, last + 1));
+            } else {
+                local.put(key, Math.max(last, number(e, key)));
+            }
+        }
+    }
+}